@@ -0,0 +1,116 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.xee.sdk.api
+
+import com.xee.sdk.api.XeeApi.Params
+import com.xee.sdk.core.common.DateDeserializer
+import io.reactivex.BackpressureStrategy
+import io.reactivex.Flowable
+import io.reactivex.Observable
+import io.reactivex.processors.BehaviorProcessor
+import io.reactivex.schedulers.Schedulers
+import java.util.*
+import java.util.concurrent.TimeUnit
+
+/**
+ * DatePaging requests the items of a date range from the endpoints accepting the from, to and limit parameters,
+ * page by page or split into shards fetched concurrently
+ * @author Julien Cholin
+ * @since 4.2.0
+ */
+internal object DatePaging {
+
+    /**
+     * Split [from, to] into contiguous intervals and fetch them concurrently, each of them page by page.
+     * The API dates have a precision of one second, so the intervals are cut on whole seconds and share their boundaries:
+     * each interval is requested up to the start of the next one, and only keeps the items before it.
+     * The items without date are only kept by the last interval, otherwise each interval would emit them.
+     * The intervals don't overlap, so concatenating them in order is enough to merge them by date:
+     * [Observable.concatMapEager] keeps that order while fetching in parallel
+     * @param dateOf returns the date of an item, null if it has none
+     * @param fetch requests a page with the given parameters
+     */
+    fun <T> fetchSharded(from: Date, to: Date, shards: Int, maxConcurrency: Int, pageSize: Int, dateOf: (T) -> Date?,
+                         fetch: (MutableMap<String, Any>) -> Observable<List<T>>): Observable<T> {
+        if (shards < 1) return Observable.error(IllegalArgumentException("shards must be positive"))
+        if (maxConcurrency < 1) return Observable.error(IllegalArgumentException("maxConcurrency must be positive"))
+        if (pageSize < 1) return Observable.error(IllegalArgumentException("pageSize must be positive"))
+
+        val shardStarts = mutableListOf(from.time)
+        val fromSeconds = TimeUnit.MILLISECONDS.toSeconds(from.time)
+        val toSeconds = TimeUnit.MILLISECONDS.toSeconds(to.time)
+        val shardSeconds = Math.max(1, (toSeconds - fromSeconds + shards - 1) / shards)
+        var shardStart = fromSeconds + shardSeconds
+        while (shardStart < toSeconds && shardStarts.size < shards) {
+            shardStarts.add(TimeUnit.SECONDS.toMillis(shardStart))
+            shardStart += shardSeconds
+        }
+
+        return Observable.range(0, shardStarts.size)
+                .concatMapEager<T>({ shard ->
+                    val isLast = shard == shardStarts.size - 1
+                    val shardTo = if (isLast) to else Date(shardStarts[shard + 1])
+                    // Each shard is subscribed on its own thread, otherwise the calls would be executed one after the other
+                    fetchPages(Date(shardStarts[shard]), shardTo, pageSize, dateOf, fetch)
+                            .toObservable()
+                            .filter { item -> isLast || dateOf(item)?.before(shardTo) == true }
+                            .subscribeOn(Schedulers.io())
+                }, maxConcurrency, Flowable.bufferSize())
+    }
+
+    /**
+     * Request [from, to] page by page, each page starting at the date of the last item received,
+     * and the next page is only requested once the previous one is consumed.
+     * The dates are sent with a precision of one second, so the items of a page older than its start,
+     * or already received at the end of the previous page, are skipped.
+     * A full page without any new item can't be paged past: more items than the page size share one second,
+     * so the stream fails with a [PageOverflowException] instead of silently dropping the rest of the range
+     * @param dateOf returns the date of an item, null if it has none
+     * @param fetch requests a page with the given parameters
+     */
+    fun <T> fetchPages(from: Date, to: Date, pageSize: Int, dateOf: (T) -> Date?,
+                       fetch: (MutableMap<String, Any>) -> Observable<List<T>>): Flowable<T> =
+            Flowable.defer {
+                val cursor = BehaviorProcessor.createDefault(from)
+                // Items of the previous page sharing its last date, they are requested again with the next page
+                var boundaryItems: Set<T> = emptySet()
+
+                cursor.concatMap { pageFrom ->
+                    val optionalParameters = mutableMapOf<String, Any>()
+                    // The cursor comes from the API, so the dates are formatted in UTC
+                    optionalParameters[Params.FROM] = DateDeserializer.format(pageFrom)
+                    optionalParameters[Params.TO] = DateDeserializer.format(to)
+                    optionalParameters[Params.LIMIT] = pageSize
+                    fetch(optionalParameters)
+                            .map { page -> Pair(pageFrom, page.sortedBy(dateOf)) }
+                            .toFlowable(BackpressureStrategy.BUFFER)
+                }.map { (pageFrom, page) ->
+                    val newItems = page.filter { item -> dateOf(item)?.before(pageFrom) != true && item !in boundaryItems }
+                    val lastDate = page.mapNotNull(dateOf).max()
+                    if (page.size >= pageSize && newItems.isEmpty()) {
+                        throw PageOverflowException(pageFrom, pageSize)
+                    }
+                    if (page.size < pageSize || lastDate == null || !lastDate.before(to)) {
+                        cursor.onComplete()
+                    } else {
+                        boundaryItems = page.filter { dateOf(it) == lastDate }.toSet()
+                        cursor.onNext(lastDate)
+                    }
+                    newItems
+                }.concatMapIterable<T>({ it }, 1)
+            }
+}
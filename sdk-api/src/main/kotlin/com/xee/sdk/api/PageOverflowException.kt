@@ -0,0 +1,31 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.xee.sdk.api
+
+import com.xee.sdk.core.common.DateDeserializer
+import java.util.*
+
+/**
+ * Error of a date range which can't be requested page by page, because more items than the page size share the same second.
+ * Requesting the range again with larger pages fixes it
+ * @param date the date of the page
+ * @param pageSize the number of items requested per page
+ * @author Julien Cholin
+ * @since 4.2.0
+ */
+class PageOverflowException(val date: Date, val pageSize: Int) :
+        IllegalStateException("More than $pageSize items at ${DateDeserializer.format(date)}, request larger pages")
@@ -21,19 +21,26 @@ import com.xee.sdk.api.endpoint.TripsEndpoint
 import com.xee.sdk.api.endpoint.UsersEndpoint
 import com.xee.sdk.api.endpoint.VehiclesEndpoint
 import com.xee.sdk.api.model.*
+import com.xee.sdk.api.model.adapter.registerModelTypeAdapters
 import com.xee.sdk.core.auth.XeeAuth
 import com.xee.sdk.core.common.HttpHeaders
 import com.xee.sdk.core.common.XeeEnv
+import com.xee.sdk.core.common.XeeHttpClient
+import com.xee.sdk.core.common.geo.Polyline
+import com.xee.sdk.core.common.geo.Simplification
+import com.xee.sdk.core.common.governor.GovernedCallAdapterFactory
+import com.xee.sdk.core.common.metrics.MetricsConverterFactory
+import com.xee.sdk.core.common.CoalescingCallAdapterFactory
 import com.xee.sdk.core.common.DateDeserializer
 import com.xee.sdk.core.common.interceptor.LogRequestInterceptor
 import com.xee.sdk.core.common.interceptor.ApiInterceptor
 import com.xee.sdk.core.common.model.buildThrowableError
 import io.reactivex.Completable
+import io.reactivex.Flowable
 import io.reactivex.Observable
-import okhttp3.OkHttpClient
+import io.reactivex.schedulers.Schedulers
 import retrofit2.Converter
 import retrofit2.Retrofit
-import retrofit2.adapter.rxjava2.RxJava2CallAdapterFactory
 import retrofit2.converter.gson.GsonConverterFactory
 import java.text.SimpleDateFormat
 import java.util.*
@@ -53,6 +60,9 @@ class XeeApi @JvmOverloads constructor(environment: XeeEnv, private val enableLo
         const val ROUTE_BASE = "https://%s/"
         const val DATE_FORMAT = "yyyy-MM-dd'T'HH:mm:ss'Z'"
         const val DATE_FORMAT_WITH_MS = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'"
+        const val SIGNALS_PAGE_SIZE = 1000
+        const val SHARDS_PAGE_SIZE = 1000
+        const val STATUS_BATCH_CONCURRENCY = 8
 
         private val LOG_INTERCEPTOR = LogRequestInterceptor()
         @JvmField
@@ -82,7 +92,10 @@ class XeeApi @JvmOverloads constructor(environment: XeeEnv, private val enableLo
 
     init {
         ENABLE_LOG = enableLog
-        CONVERTER_FACTORY = GsonConverterFactory.create(GsonBuilder().registerTypeAdapter(Date::class.java, DateDeserializer(ENABLE_LOG)).create())
+        CONVERTER_FACTORY = GsonConverterFactory.create(GsonBuilder()
+                .registerTypeAdapter(Date::class.java, DateDeserializer(ENABLE_LOG))
+                .registerModelTypeAdapters()
+                .create())
         initApiEndpoint()
     }
 
@@ -91,7 +104,7 @@ class XeeApi @JvmOverloads constructor(environment: XeeEnv, private val enableLo
      */
     @Suppress("NULLABILITY_MISMATCH_BASED_ON_JAVA_ANNOTATIONS")
     private fun initApiEndpoint() {
-        val apiClientBuilder = OkHttpClient.Builder()
+        val apiClientBuilder = XeeHttpClient[xeeEnv].newBuilder()
                 .addInterceptor { chain ->
                     val token = xeeEnv.tokenStorage?.get()
                     val requestBuilder = chain.request().newBuilder()
@@ -109,8 +122,8 @@ class XeeApi @JvmOverloads constructor(environment: XeeEnv, private val enableLo
         val apiRetrofit = Retrofit.Builder()
                 .baseUrl(String.format(Locale.FRANCE, ROUTE_BASE, xeeEnv.environment))
                 .client(apiClientBuilder.build())
-                .addCallAdapterFactory(RxJava2CallAdapterFactory.create())
-                .addConverterFactory(CONVERTER_FACTORY)
+                .addCallAdapterFactory(CoalescingCallAdapterFactory(GovernedCallAdapterFactory.create(xeeEnv.rateLimits, xeeEnv.metrics)))
+                .addConverterFactory(xeeEnv.metrics?.let { MetricsConverterFactory(CONVERTER_FACTORY, it) } ?: CONVERTER_FACTORY)
                 .build()
 
         usersEndpoint = apiRetrofit.create<UsersEndpoint>(UsersEndpoint::class.java)
@@ -259,6 +272,19 @@ class XeeApi @JvmOverloads constructor(environment: XeeEnv, private val enableLo
     fun getVehicleTrips(vehicleId: String): Observable<List<Trip>> =
             handleObservableError(vehiclesEndpoint?.getVehicleTrips(vehicleId))
 
+    /**
+     * Returns trips corresponding to specified vehicle id, started between two dates
+     * @param vehicleId the uuid of the [Vehicle]
+     * @param from the beginning date of the search
+     * @param to the ending date of the search
+     */
+    fun getVehicleTrips(vehicleId: String, from: Date?, to: Date? = null): Observable<List<Trip>> {
+        val optionalParameters = mutableMapOf<String, Any>()
+        if (from != null) optionalParameters[Params.FROM] = DateDeserializer.format(from)
+        if (to != null) optionalParameters[Params.TO] = DateDeserializer.format(to)
+        return handleObservableError(vehiclesEndpoint?.getVehicleTrips(vehicleId, optionalParameters))
+    }
+
     /**
      * Update a vehicle with a specified id
      * @param vehicleId the uuid of the [Vehicle]
@@ -307,6 +333,46 @@ class XeeApi @JvmOverloads constructor(environment: XeeEnv, private val enableLo
         return handleObservableError(vehiclesEndpoint?.getVehicleSignals(vehicleId, optionalParameters))
     }
 
+    /**
+     * Retrieves signals for a vehicle as one [SignalSeries] per signal name.
+     * The payload is decoded directly into the series, without creating any [Signal]
+     * @param vehicleId the uuid of the [Vehicle]
+     * @param from the beginning date of the search
+     * @param to the ending date of the search
+     * @param signals the list of [Signal] to filter
+     * @param limit the limit of the search
+     */
+    @JvmOverloads
+    fun getVehicleSignalSeries(vehicleId: String, from: Date? = null, to: Date? = null, signals: String? = null, limit: Int? = null): Observable<Map<String, SignalSeries>> {
+        val optionalParameters = mutableMapOf<String, Any>()
+        // The series are decoded in UTC, so the range is formatted in UTC as well
+        if (from != null) optionalParameters[Params.FROM] = DateDeserializer.format(from)
+        if (to != null) optionalParameters[Params.TO] = DateDeserializer.format(to)
+        if (limit != null) optionalParameters[Params.LIMIT] = limit
+        if (signals != null) optionalParameters[Params.SIGNALS] = signals
+        return handleObservableError(vehiclesEndpoint?.getVehicleSignalsBody(vehicleId, optionalParameters)
+                ?.map { body -> body.use { SignalSeries.decode(it.charStream()) } })
+    }
+
+    /**
+     * Streams the signals of a vehicle between two dates.
+     * The range is requested page by page, each page starting at the date of the last signal received,
+     * and the next page is only requested once the previous one is consumed, so months of signals
+     * can be processed with a constant memory. The pages are expected to be sorted by ascending date
+     * @param vehicleId the uuid of the [Vehicle]
+     * @param from the beginning date of the search
+     * @param to the ending date of the search
+     * @param signals the list of [Signal] to filter
+     * @param pageSize the number of signals requested per page, the stream fails with a [PageOverflowException]
+     *                 if more signals share the same second
+     */
+    @JvmOverloads
+    fun getVehicleSignalsFlowable(vehicleId: String, from: Date, to: Date, signals: String? = null, pageSize: Int = SIGNALS_PAGE_SIZE): Flowable<Signal> =
+            DatePaging.fetchPages(from, to, pageSize, { it.date }) { optionalParameters ->
+                if (signals != null) optionalParameters[Params.SIGNALS] = signals
+                handleObservableError(vehiclesEndpoint?.getVehicleSignals(vehicleId, optionalParameters))
+            }
+
     /**
      * Retrieves locations for a vehicle
      * @param vehicleId the uuid of the [Vehicle]
@@ -355,12 +421,68 @@ class XeeApi @JvmOverloads constructor(environment: XeeEnv, private val enableLo
         return handleObservableError(vehiclesEndpoint?.getVehicleAccelerometers(vehicleId, optionalParameters))
     }
 
+    /**
+     * Retrieves locations for a vehicle by splitting the search into shards fetched concurrently.
+     * The locations are emitted sorted by date as a single stream
+     * @param vehicleId the uuid of the [Vehicle]
+     * @param from the beginning date of the search
+     * @param to the ending date of the search
+     * @param shards the number of intervals the search is split into
+     * @param maxConcurrency the maximum number of shards fetched at the same time
+     * @param pageSize the number of items requested per page, each shard being requested page by page.
+     *                 The stream fails with a [PageOverflowException] if more items share the same second
+     */
+    @JvmOverloads
+    fun getVehicleLocationsSharded(vehicleId: String, from: Date, to: Date, shards: Int, maxConcurrency: Int = shards,
+                                 pageSize: Int = SHARDS_PAGE_SIZE): Observable<Location> =
+            DatePaging.fetchSharded(from, to, shards, maxConcurrency, pageSize, { it.date }) { optionalParameters ->
+                handleObservableError(vehiclesEndpoint?.getVehicleLocations(vehicleId, optionalParameters))
+            }
+
+    /**
+     * Retrieves the accelerometers data of a vehicle by splitting the search into shards fetched concurrently.
+     * The accelerometers data are emitted sorted by date as a single stream
+     * @param vehicleId the uuid of the [Vehicle]
+     * @param from the beginning date of the search
+     * @param to the ending date of the search
+     * @param shards the number of intervals the search is split into
+     * @param maxConcurrency the maximum number of shards fetched at the same time
+     * @param pageSize the number of items requested per page, each shard being requested page by page.
+     *                 The stream fails with a [PageOverflowException] if more items share the same second
+     */
+    @JvmOverloads
+    fun getVehicleAccelerometersSharded(vehicleId: String, from: Date, to: Date, shards: Int, maxConcurrency: Int = shards,
+                                 pageSize: Int = SHARDS_PAGE_SIZE): Observable<Accelerometer> =
+            DatePaging.fetchSharded(from, to, shards, maxConcurrency, pageSize, { it.date }) { optionalParameters ->
+                handleObservableError(vehiclesEndpoint?.getVehicleAccelerometers(vehicleId, optionalParameters))
+            }
+
     /**
      * Returns the vehicle status of the vehicle
      * @param vehicleId the uuid of the [Vehicle]
      */
     fun getVehicleStatus(vehicleId: String): Observable<Status> =
             handleObservableError(vehiclesEndpoint?.getVehicleStatus(vehicleId))
+
+    /**
+     * Returns the status of several vehicles, fetched in parallel. Each result is emitted as soon as it is received,
+     * and a vehicle whose status can't be fetched is emitted with its error without failing the other ones
+     * @param vehicleIds the uuids of the [Vehicle]s, the duplicates are fetched once
+     * @param maxConcurrency the maximum number of statuses fetched at the same time
+     */
+    @JvmOverloads
+    fun getVehiclesStatus(vehicleIds: Collection<String>, maxConcurrency: Int = STATUS_BATCH_CONCURRENCY): Observable<VehicleStatusResult> {
+        if (maxConcurrency < 1) return Observable.error(IllegalArgumentException("maxConcurrency must be positive"))
+
+        return Observable.fromIterable(LinkedHashSet(vehicleIds))
+                .flatMap<VehicleStatusResult>({ vehicleId ->
+                    // Each status is subscribed on its own thread, otherwise the calls would be executed one after the other
+                    getVehicleStatus(vehicleId)
+                            .subscribeOn(Schedulers.io())
+                            .map { status -> VehicleStatusResult(vehicleId, status, null) }
+                            .onErrorReturn { error -> VehicleStatusResult(vehicleId, null, error) }
+                }, maxConcurrency)
+    }
     //endregion
 
     //region [TRIPS]
@@ -419,6 +541,17 @@ class XeeApi @JvmOverloads constructor(environment: XeeEnv, private val enableLo
         if (limit != null) optionalParameters[Params.LIMIT] = limit
         return handleObservableError(tripsEndpoint?.getTripLocations(tripId, optionalParameters))
     }
+
+    /**
+     * Returns the geometry of the trip as a [Polyline], simplified to draw it at a given zoom level.
+     * It is much lighter than the locations to keep in memory, and can be stored with [Polyline.encode]
+     * @param tripId the uuid of the [Trip]
+     * @param tolerance the tolerance in meters of the simplification, see [Polyline.toleranceAtZoom]. 0 keeps all the points
+     * @param simplification the [Simplification] algorithm
+     */
+    @JvmOverloads
+    fun getTripPolyline(tripId: String, tolerance: Double = 0.0, simplification: Simplification = Simplification.DOUGLAS_PEUCKER): Observable<Polyline> =
+            getTripLocations(tripId).map { locations -> locations.toPolyline().simplify(tolerance, simplification) }
     //endregion
 
     //region [ERROR]
@@ -19,6 +19,7 @@ package com.xee.sdk.api.endpoint
 import com.xee.sdk.api.model.Authorization
 import com.xee.sdk.api.model.User
 import com.xee.sdk.api.model.Vehicle
+import com.xee.sdk.core.common.HttpHeaders
 import io.reactivex.Completable
 import io.reactivex.Observable
 import retrofit2.http.*
@@ -45,12 +46,15 @@ interface UsersEndpoint {
         const val AUTHORIZATION_ID = "authorizationId"
     }
 
+    @Headers(HttpHeaders.CACHEABLE)
     @GET(Routes.ME)
     fun getUser(): Observable<User>
 
+    @Headers(HttpHeaders.CACHEABLE)
     @GET(Routes.USER)
     fun getUser(@Path(Parameters.USER_ID) userId: String): Observable<User>
 
+    @Headers(HttpHeaders.CACHEABLE)
     @GET(Routes.VEHICLES)
     fun getUserVehicles(@Path(Parameters.USER_ID) userId: String): Observable<List<Vehicle>>
 
@@ -17,8 +17,10 @@
 package com.xee.sdk.api.endpoint
 
 import com.xee.sdk.api.model.*
+import com.xee.sdk.core.common.HttpHeaders
 import io.reactivex.Completable
 import io.reactivex.Observable
+import okhttp3.ResponseBody
 import retrofit2.http.*
 
 /**
@@ -46,6 +48,7 @@ interface VehiclesEndpoint {
         const val PRIVACY_ID = "privacyId"
     }
 
+    @Headers(HttpHeaders.CACHEABLE)
     @GET(Routes.VEHICLE)
     fun getVehicle(@Path(Parameters.VEHICLE_ID) vehicleId:String): Observable<Vehicle>
 
@@ -55,9 +58,16 @@ interface VehiclesEndpoint {
     @GET(Routes.VEHICLE_TRIPS)
     fun getVehicleTrips(@Path(Parameters.VEHICLE_ID) vehicleId:String): Observable<List<Trip>>
 
+    @GET(Routes.VEHICLE_TRIPS)
+    fun getVehicleTrips(@Path(Parameters.VEHICLE_ID) vehicleId:String, @QueryMap parameters:Map<String, @JvmSuppressWildcards Any>): Observable<List<Trip>>
+
     @GET(Routes.VEHICLE_SIGNALS)
     fun getVehicleSignals(@Path(Parameters.VEHICLE_ID) vehicleId:String, @QueryMap parameters:Map<String, @JvmSuppressWildcards Any>): Observable<List<Signal>>
 
+    @Streaming
+    @GET(Routes.VEHICLE_SIGNALS)
+    fun getVehicleSignalsBody(@Path(Parameters.VEHICLE_ID) vehicleId:String, @QueryMap parameters:Map<String, @JvmSuppressWildcards Any>): Observable<ResponseBody>
+
     @GET(Routes.VEHICLE_STATUS)
     fun getVehicleStatus(@Path(Parameters.VEHICLE_ID) vehicleId:String): Observable<Status>
 
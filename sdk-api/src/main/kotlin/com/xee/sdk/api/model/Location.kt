@@ -19,6 +19,7 @@ package com.xee.sdk.api.model
 import android.os.Parcel
 import android.os.Parcelable
 import com.google.gson.annotations.SerializedName
+import com.xee.sdk.core.common.geo.Polyline
 import java.util.*
 
 /**
@@ -66,4 +67,13 @@ data class Location @JvmOverloads constructor(@SerializedName("latitude") var la
             override fun newArray(size: Int): Array<Location?> = arrayOfNulls(size)
         }
     }
-}
\ No newline at end of file
+}
+
+/**
+ * Build the [Polyline] of the locations, ordered by date
+ * @return the [Polyline] holding only the latitudes and the longitudes
+ */
+fun List<Location>.toPolyline(): Polyline {
+    val locations = sortedBy { it.date?.time ?: 0L }
+    return Polyline(DoubleArray(locations.size) { locations[it].latitude }, DoubleArray(locations.size) { locations[it].longitude })
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.xee.sdk.api.model
+
+import com.google.gson.stream.JsonReader
+import com.google.gson.stream.JsonToken
+import com.xee.sdk.core.common.DateDeserializer
+import com.xee.sdk.core.common.nextStringOrNull
+import java.io.IOException
+import java.io.Reader
+import java.util.*
+
+/**
+ * Series of the values of one [Signal], stored in two primitive arrays instead of one object per value.
+ * The dates are stored in ms since epoch
+ * @author Julien Cholin
+ * @since 4.2.0
+ */
+class SignalSeries private constructor(val name: String,
+                                       private var dates: LongArray,
+                                       private var values: DoubleArray,
+                                       private val offset: Int,
+                                       size: Int,
+                                       private val view: Boolean) {
+
+    /**
+     * Number of values in the series
+     */
+    var size: Int = size
+        private set
+
+    @JvmOverloads
+    constructor(name: String, initialCapacity: Int = DEFAULT_CAPACITY) :
+            this(name, LongArray(initialCapacity), DoubleArray(initialCapacity), 0, 0, false)
+
+    /**
+     * Append a value to the series
+     * @param date the date of the value in ms since epoch
+     * @param value the value
+     */
+    fun add(date: Long, value: Double) {
+        if (view) throw UnsupportedOperationException("A slice of a series is read-only")
+        if (size == dates.size) {
+            val capacity = Math.max(DEFAULT_CAPACITY, dates.size + (dates.size shr 1))
+            dates = Arrays.copyOf(dates, capacity)
+            values = Arrays.copyOf(values, capacity)
+        }
+        dates[size] = date
+        values[size] = value
+        size++
+    }
+
+    /**
+     * @return the date in ms since epoch of the value at the given index
+     */
+    fun dateAt(index: Int): Long {
+        checkIndex(index)
+        return dates[offset + index]
+    }
+
+    /**
+     * @return the value at the given index
+     */
+    fun valueAt(index: Int): Double {
+        checkIndex(index)
+        return values[offset + index]
+    }
+
+    /**
+     * Returns a read-only view of a part of the series, the values are not copied
+     * @param fromIndex the first index, inclusive
+     * @param toIndex the last index, exclusive
+     */
+    fun slice(fromIndex: Int, toIndex: Int): SignalSeries {
+        if (fromIndex < 0 || toIndex > size || fromIndex > toIndex) throw IndexOutOfBoundsException("[$fromIndex, $toIndex[ out of [0, $size[")
+        return SignalSeries(name, dates, values, offset + fromIndex, toIndex - fromIndex, true)
+    }
+
+    /**
+     * Returns a read-only view of the values between two dates, the series must be sorted by date
+     * @param from the beginning date in ms since epoch, inclusive
+     * @param to the ending date in ms since epoch, exclusive
+     */
+    fun slice(from: Long, to: Long): SignalSeries = slice(lowerBound(from), lowerBound(to))
+
+    /**
+     * @return a copy of the dates in ms since epoch
+     */
+    fun copyDates(): LongArray = Arrays.copyOfRange(dates, offset, offset + size)
+
+    /**
+     * @return a copy of the values
+     */
+    fun copyValues(): DoubleArray = Arrays.copyOfRange(values, offset, offset + size)
+
+    /**
+     * @return the index of the first value whose date is greater than or equal to the given one
+     */
+    private fun lowerBound(date: Long): Int {
+        var low = 0
+        var high = size
+        while (low < high) {
+            val middle = (low + high) ushr 1
+            if (dates[offset + middle] < date) low = middle + 1 else high = middle
+        }
+        return low
+    }
+
+    private fun checkIndex(index: Int) {
+        if (index < 0 || index >= size) throw IndexOutOfBoundsException("$index out of [0, $size[")
+    }
+
+    companion object {
+        private const val DEFAULT_CAPACITY = 16
+
+        /**
+         * Decode a JSON array of signals into one series per signal name,
+         * without creating any [Signal] nor [Date]
+         * @param reader the [Reader] of the JSON payload
+         * @return the series by signal name, in the order of the payload
+         */
+        @JvmStatic
+        @Throws(IOException::class)
+        fun decode(reader: Reader): Map<String, SignalSeries> {
+            val seriesByName = LinkedHashMap<String, SignalSeries>()
+            val jsonReader = JsonReader(reader)
+            jsonReader.beginArray()
+            while (jsonReader.hasNext()) {
+                var name: String? = null
+                var value = 0.0
+                var date: Long? = null
+
+                jsonReader.beginObject()
+                while (jsonReader.hasNext()) {
+                    when (jsonReader.nextName()) {
+                        "name" -> name = jsonReader.nextStringOrNull()
+                        "value" -> if (jsonReader.peek() == JsonToken.NULL) jsonReader.nextNull() else value = jsonReader.nextDouble()
+                        "date" -> date = if (jsonReader.peek() == JsonToken.NULL) {
+                            jsonReader.nextNull()
+                            null
+                        } else {
+                            DateDeserializer.parseMillis(jsonReader.nextString())
+                        }
+                        else -> jsonReader.skipValue()
+                    }
+                }
+                jsonReader.endObject()
+
+                // A value without a name or a date can't be placed in a series
+                if (name != null && date != null) {
+                    var series = seriesByName[name]
+                    if (series == null) {
+                        series = SignalSeries(name)
+                        seriesByName[name] = series
+                    }
+                    series.add(date, value)
+                }
+            }
+            jsonReader.endArray()
+            return seriesByName
+        }
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.xee.sdk.api.model
+
+/**
+ * Result of the status of one [Vehicle] in a batch, holding either its [Status] or the error which prevented to fetch it
+ * @author Julien Cholin
+ * @since 4.2.0
+ */
+data class VehicleStatusResult(val vehicleId: String,
+                               val status: Status?,
+                               val error: Throwable?) {
+
+    /**
+     * @return true if the [Status] has been fetched
+     */
+    fun isSuccessful(): Boolean = error == null
+}
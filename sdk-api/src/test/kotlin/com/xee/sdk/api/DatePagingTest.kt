@@ -0,0 +1,108 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.xee.sdk.api
+
+import com.xee.sdk.core.common.DateDeserializer
+import io.reactivex.Observable
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.util.*
+
+class DatePagingTest {
+
+    private val requests = ArrayList<Map<String, Any>>()
+
+    @Test
+    fun fetchPages_skipsBoundaryItems() {
+        val items = listOf(item("0", 0), item("1a", 1), item("1b", 1), item("2", 2), item("3", 3), item("4", 4))
+        val received = DatePaging.fetchPages(date(0), date(10), 3, { it: Item -> it.date }, server(items))
+                .test().await().assertComplete().values()
+        assertEquals(items, received)
+        assertEquals(listOf("1970-01-01T00:00:00Z", "1970-01-01T00:00:01Z", "1970-01-01T00:00:02Z", "1970-01-01T00:00:04Z"),
+                requests.map { it[XeeApi.Params.FROM] })
+    }
+
+    @Test
+    fun fetchPages_stopsAtEnd() {
+        val items = listOf(item("0", 0), item("1", 1), item("2", 2), item("3", 3))
+        val received = DatePaging.fetchPages(date(0), date(2), 2, { it: Item -> it.date }, server(items))
+                .test().await().assertComplete().values()
+        assertEquals(items.subList(0, 3), received)
+        assertEquals("1970-01-01T00:00:02Z", requests[0][XeeApi.Params.TO])
+    }
+
+    @Test
+    fun fetchPages_failsOnFullPageOfOneSecond() {
+        val items = listOf(item("0", 0), item("1a", 1), item("1b", 1), item("1c", 1), item("1d", 1), item("2", 2))
+        val observer = DatePaging.fetchPages(date(0), date(10), 3, { it: Item -> it.date }, server(items)).test().await()
+        observer.assertError(PageOverflowException::class.java)
+        // The items received before the error are not emitted twice
+        assertEquals(items.subList(0, 4), observer.values())
+    }
+
+    @Test
+    fun fetchSharded_splitsOnSeams() {
+        // An item every 5 seconds, some of them exactly on the seams of the 4 shards: 25s, 50s and 75s
+        val items = (0..20).map { item("$it", it * 5L) }
+        val received = DatePaging.fetchSharded(date(0), date(100), 4, 2, 2, { it: Item -> it.date }, server(items))
+                .test().await().assertComplete().values()
+        assertEquals(items, received)
+        val shardStarts = listOf("1970-01-01T00:00:00Z", "1970-01-01T00:00:25Z", "1970-01-01T00:00:50Z", "1970-01-01T00:01:15Z")
+        assertTrue(requests.map { it[XeeApi.Params.FROM] }.containsAll(shardStarts))
+    }
+
+    @Test
+    fun fetchSharded_emitsUndatedItemsOnce() {
+        val undated = listOf(item("undated1", null), item("undated2", null))
+        val dated = (0..3).map { item("$it", it * 30L) }
+        val received = DatePaging.fetchSharded(date(0), date(120), 4, 4, 100, { it: Item -> it.date }, server(dated, undated))
+                .test().await().assertComplete().values()
+        assertEquals(dated.size + undated.size, received.size)
+        assertEquals(dated, received.filter { it.date != null })
+        assertEquals(undated, received.filter { it.date == null })
+    }
+
+    @Test
+    fun fetchSharded_rejectsInvalidArguments() {
+        DatePaging.fetchSharded(date(0), date(10), 0, 1, 1, { it: Item -> it.date }, server(emptyList()))
+                .test().assertError(IllegalArgumentException::class.java)
+        DatePaging.fetchSharded(date(0), date(10), 1, 0, 1, { it: Item -> it.date }, server(emptyList()))
+                .test().assertError(IllegalArgumentException::class.java)
+        DatePaging.fetchSharded(date(0), date(10), 1, 1, 0, { it: Item -> it.date }, server(emptyList()))
+                .test().assertError(IllegalArgumentException::class.java)
+    }
+
+    /**
+     * Fake endpoint returning the items between the from and to parameters, both inclusive with a precision of one second,
+     * sorted by date and limited to the limit parameter. The undated items are returned with every page
+     */
+    private fun server(items: List<Item>, undated: List<Item> = emptyList()): (MutableMap<String, Any>) -> Observable<List<Item>> = { parameters ->
+        synchronized(requests) { requests.add(HashMap(parameters)) }
+        val from = DateDeserializer.parseMillis(parameters[XeeApi.Params.FROM] as String)!!
+        val to = DateDeserializer.parseMillis(parameters[XeeApi.Params.TO] as String)!!
+        val limit = parameters[XeeApi.Params.LIMIT] as Int
+        val page = items.filter { it.date!!.time in from..to }.sortedBy { it.date }.take(limit)
+        Observable.just(page + undated)
+    }
+
+    private fun item(id: String, seconds: Long?) = Item(id, seconds?.let { date(it) })
+
+    private fun date(seconds: Long) = Date(seconds * 1000)
+
+    private data class Item(val id: String, val date: Date?)
+}
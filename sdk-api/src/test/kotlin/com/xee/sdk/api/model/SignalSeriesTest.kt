@@ -0,0 +1,51 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.xee.sdk.api.model
+
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import java.io.StringReader
+
+class SignalSeriesTest {
+
+    @Test
+    fun decode_groupsValuesByName() {
+        val series = decode("""[
+            {"name": "speed", "value": 10, "date": "2017-12-01T10:00:00Z"},
+            {"name": "rpm", "value": 900, "date": "2017-12-01T10:00:00Z"},
+            {"name": "speed", "value": 20, "date": "2017-12-01T10:00:01Z"}
+        ]""")
+        assertEquals(listOf("speed", "rpm"), series.keys.toList())
+        assertArrayEquals(doubleArrayOf(10.0, 20.0), series["speed"]!!.copyValues(), 0.0)
+        assertEquals(1000L, series["speed"]!!.dateAt(1) - series["speed"]!!.dateAt(0))
+    }
+
+    @Test
+    fun decode_skipsValuesWithoutNameOrDate() {
+        val series = decode("""[
+            {"name": null, "value": 10, "date": "2017-12-01T10:00:00Z"},
+            {"value": 20, "date": "2017-12-01T10:00:00Z"},
+            {"name": "speed", "value": 30, "date": null},
+            {"name": "speed", "value": 40, "date": "2017-12-01T10:00:00Z"}
+        ]""")
+        assertEquals(listOf("speed"), series.keys.toList())
+        assertArrayEquals(doubleArrayOf(40.0), series["speed"]!!.copyValues(), 0.0)
+    }
+
+    private fun decode(json: String) = SignalSeries.decode(StringReader(json))
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.xee.sdk.benchmarks;
+
+import com.xee.sdk.core.common.DateDeserializer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the date parsing and formatting of {@link DateDeserializer}.
+ * The SimpleDateFormat benchmarks reproduce the previous implementation as a baseline
+ * @author Julien Cholin
+ * @since 4.2.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DateBenchmark {
+
+    private static final String DATE = "2017-11-01T08:42:17Z";
+    private static final String DATE_WITH_MS = "2017-11-01T08:42:17.123Z";
+    private static final Date PARSED_DATE = DateDeserializer.parse(DATE);
+
+    @Benchmark
+    public Date parse() {
+        return DateDeserializer.parse(DATE);
+    }
+
+    @Benchmark
+    public Date parseWithMs() {
+        return DateDeserializer.parse(DATE_WITH_MS);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Date parseWithMsConcurrently() {
+        return DateDeserializer.parse(DATE_WITH_MS);
+    }
+
+    @Benchmark
+    public String format() {
+        return DateDeserializer.format(PARSED_DATE);
+    }
+
+    @Benchmark
+    public Date parseSimpleDateFormat() {
+        return parseWithSimpleDateFormat(DATE);
+    }
+
+    @Benchmark
+    public Date parseWithMsSimpleDateFormat() {
+        return parseWithSimpleDateFormat(DATE_WITH_MS);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Date parseWithMsSimpleDateFormatConcurrently() {
+        return parseWithSimpleDateFormat(DATE_WITH_MS);
+    }
+
+    /**
+     * Previous implementation: synchronized, two formatters per call and an exception to fall back on the ms format
+     */
+    private static synchronized Date parseWithSimpleDateFormat(String date) {
+        SimpleDateFormat formatter = new SimpleDateFormat(DateDeserializer.DATE_FORMAT, Locale.US);
+        formatter.setTimeZone(TimeZone.getTimeZone("UTC"));
+        try {
+            return formatter.parse(date);
+        } catch (ParseException e) {
+            try {
+                formatter = new SimpleDateFormat(DateDeserializer.DATE_FORMAT_WITH_MS, Locale.US);
+                formatter.setTimeZone(TimeZone.getTimeZone("UTC"));
+                return formatter.parse(date);
+            } catch (ParseException e1) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.xee.sdk.benchmarks;
+
+import com.xee.sdk.core.common.model.Error;
+import com.xee.sdk.core.common.model.ErrorKt;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the parsing of the API error payloads
+ * @author Julien Cholin
+ * @since 4.2.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ErrorParsingBenchmark {
+
+    private static final String ERROR = "{\"error\":\"token_expired\",\"error_description\":\"Token has expired\"}";
+    private static final String ERRORS = "[{\"error\":\"invalid_parameters\",\"error_description\":\"Invalid parameters\","
+            + "\"error_details\":[{\"field\":\"from\",\"constraint\":\"date\",\"description\":\"from must be a date\"}]}]";
+    private static final String UNEXPECTED_ERROR = "Bad Gateway";
+
+    @Benchmark
+    public Error parseError() {
+        return ErrorKt.parseResponseError(ERROR);
+    }
+
+    @Benchmark
+    public Error parseErrors() {
+        return ErrorKt.parseResponseError(ERRORS);
+    }
+
+    @Benchmark
+    public Error parseUnexpectedError() {
+        return ErrorKt.parseResponseError(UNEXPECTED_ERROR);
+    }
+}
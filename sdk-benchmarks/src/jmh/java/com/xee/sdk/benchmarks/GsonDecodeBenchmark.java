@@ -0,0 +1,108 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.xee.sdk.benchmarks;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.xee.sdk.api.model.Location;
+import com.xee.sdk.api.model.Signal;
+import com.xee.sdk.api.model.SignalSeries;
+import com.xee.sdk.fleet.model.FleetStatus;
+import com.xee.sdk.fleet.model.Trip;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.xee.sdk.api.model.adapter.ModelTypeAdaptersKt.registerModelTypeAdapters;
+
+/**
+ * Benchmarks of the decoding of realistic payloads, with the reflective adapters of Gson
+ * and with the streaming adapters of the models
+ * @author Julien Cholin
+ * @since 4.2.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GsonDecodeBenchmark {
+
+    private static final Type SIGNALS_TYPE = new TypeToken<List<Signal>>() {}.getType();
+    private static final Type LOCATIONS_TYPE = new TypeToken<List<Location>>() {}.getType();
+    private static final Type TRIPS_TYPE = new TypeToken<List<Trip>>() {}.getType();
+
+    @Param({"1000"})
+    public int size;
+
+    @Param({"reflective", "streaming"})
+    public String adapters;
+
+    private Gson gson;
+    private String signals;
+    private String locations;
+    private String trips;
+    private String fleetStatus;
+
+    @Setup
+    public void setUp() {
+        gson = "streaming".equals(adapters)
+                ? com.xee.sdk.fleet.model.adapter.ModelTypeAdaptersKt.registerModelTypeAdapters(
+                        registerModelTypeAdapters(Payloads.reflectiveGsonBuilder())).create()
+                : Payloads.reflectiveGson();
+        signals = Payloads.signals(size);
+        locations = Payloads.locations(size);
+        trips = Payloads.trips(size / 10);
+        fleetStatus = Payloads.fleetStatus(size / 10);
+    }
+
+    @Benchmark
+    public List<Signal> signals() {
+        return gson.fromJson(signals, SIGNALS_TYPE);
+    }
+
+    @Benchmark
+    public List<Location> locations() {
+        return gson.fromJson(locations, LOCATIONS_TYPE);
+    }
+
+    @Benchmark
+    public List<Trip> trips() {
+        return gson.fromJson(trips, TRIPS_TYPE);
+    }
+
+    @Benchmark
+    public FleetStatus fleetStatus() {
+        return gson.fromJson(fleetStatus, FleetStatus.class);
+    }
+
+    @Benchmark
+    public Map<String, SignalSeries> signalSeries() throws IOException {
+        return SignalSeries.decode(new StringReader(signals));
+    }
+}
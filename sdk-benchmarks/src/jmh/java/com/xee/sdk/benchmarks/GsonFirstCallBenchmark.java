@@ -0,0 +1,66 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.xee.sdk.benchmarks;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.xee.sdk.api.model.Signal;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.xee.sdk.api.model.adapter.ModelTypeAdaptersKt.registerModelTypeAdapters;
+
+/**
+ * Benchmark of the first decoding done by a new Gson, which includes building the adapters
+ * @author Julien Cholin
+ * @since 4.2.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(20)
+public class GsonFirstCallBenchmark {
+
+    private static final Type SIGNALS_TYPE = new TypeToken<List<Signal>>() {}.getType();
+    private static final String SIGNALS = Payloads.signals(10);
+
+    @Param({"reflective", "streaming"})
+    public String adapters;
+
+    @Benchmark
+    public List<Signal> firstCall() {
+        Gson gson = "streaming".equals(adapters)
+                ? registerModelTypeAdapters(Payloads.reflectiveGsonBuilder()).create()
+                : Payloads.reflectiveGson();
+        return gson.fromJson(SIGNALS, SIGNALS_TYPE);
+    }
+}
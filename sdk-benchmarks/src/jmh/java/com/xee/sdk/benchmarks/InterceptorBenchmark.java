@@ -0,0 +1,145 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.xee.sdk.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import okio.BufferedSource;
+
+/**
+ * Benchmarks of the two ways an interceptor can handle a successful response on a local server:
+ * buffering the whole body (as the ApiInterceptor did before 4.2.0) or streaming it (as the ApiInterceptor does now).
+ * The shipped ApiInterceptor and LogRequestInterceptor are not measured: they depend on XeeEnv, XeeAuth and android.util.Log,
+ * which can't run on the JVM, so a regression in them won't show up here. The interceptors below are standalone copies
+ * of their body handling only, to keep track of the cost of each approach
+ * @author Julien Cholin
+ * @since 4.2.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class InterceptorBenchmark {
+
+    private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+
+    @Param({"1000"})
+    public int size;
+
+    private MockWebServer server;
+    private OkHttpClient bufferingClient;
+    private OkHttpClient streamingClient;
+    private Request request;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        final Buffer payload = new Buffer().writeUtf8(Payloads.signals(size));
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse().setResponseCode(200).setBody(payload.clone());
+            }
+        });
+        server.start();
+
+        OkHttpClient client = new OkHttpClient();
+        bufferingClient = client.newBuilder().addInterceptor(new BufferingInterceptor()).build();
+        streamingClient = client.newBuilder().addInterceptor(new StreamingInterceptor()).build();
+        request = new Request.Builder().url(server.url("/v4/vehicles/1/signals")).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Benchmark
+    public long buffering() throws IOException {
+        return consume(bufferingClient);
+    }
+
+    @Benchmark
+    public long streaming() throws IOException {
+        return consume(streamingClient);
+    }
+
+    /**
+     * Read the body as the converter does, without keeping it in memory
+     */
+    private long consume(OkHttpClient client) throws IOException {
+        Response response = client.newCall(request).execute();
+        try {
+            BufferedSource source = response.body().source();
+            long count = 0;
+            while (!source.exhausted()) {
+                count += source.buffer().size();
+                source.buffer().clear();
+            }
+            return count;
+        } finally {
+            response.close();
+        }
+    }
+
+    /**
+     * Reads the whole body in a string and rebuilds the response around it
+     */
+    private static final class BufferingInterceptor implements Interceptor {
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            Response response = chain.proceed(chain.request());
+            String body = response.body().string();
+            return response.newBuilder().body(ResponseBody.create(JSON, body)).build();
+        }
+    }
+
+    /**
+     * Only looks at the body of the rejected requests, the successful ones are passed through
+     */
+    private static final class StreamingInterceptor implements Interceptor {
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            Response response = chain.proceed(chain.request());
+            if (response.code() != 401) return response;
+            response.peekBody(64 * 1024L).string();
+            return response;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.xee.sdk.benchmarks;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.xee.sdk.core.common.DateDeserializer;
+
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Realistic API payloads used by the benchmarks
+ * @author Julien Cholin
+ * @since 4.2.0
+ */
+final class Payloads {
+
+    private static final long START = 1509494400000L; // 2017-11-01T00:00:00Z
+    private static final String[] SIGNALS = {"VehiSpeed", "EngineSpeed", "FuelLevel", "Odometer"};
+
+    private Payloads() {
+    }
+
+    /**
+     * @return a Gson configured like XeeApi and XeeFleet, without the streaming model adapters
+     */
+    static GsonBuilder reflectiveGsonBuilder() {
+        return new GsonBuilder().registerTypeAdapter(Date.class, new DateDeserializer(false));
+    }
+
+    static Gson reflectiveGson() {
+        return reflectiveGsonBuilder().create();
+    }
+
+    static String date(int index) {
+        return DateDeserializer.formatMillis(START + index * 1000L);
+    }
+
+    static String signals(int count) {
+        StringBuilder builder = new StringBuilder(count * 64).append('[');
+        for (int i = 0; i < count; i++) {
+            if (i > 0) builder.append(',');
+            builder.append(signal(i));
+        }
+        return builder.append(']').toString();
+    }
+
+    static String locations(int count) {
+        StringBuilder builder = new StringBuilder(count * 160).append('[');
+        for (int i = 0; i < count; i++) {
+            if (i > 0) builder.append(',');
+            builder.append(location(i));
+        }
+        return builder.append(']').toString();
+    }
+
+    static String trips(int count) {
+        StringBuilder builder = new StringBuilder(count * 512).append('[');
+        for (int i = 0; i < count; i++) {
+            if (i > 0) builder.append(',');
+            builder.append(String.format(Locale.US,
+                    "{\"id\":\"trip-%d\",\"vehicleId\":\"vehicle-1\",\"startDate\":\"%s\",\"endDate\":\"%s\","
+                            + "\"duration\":1800,\"distance\":24.5,\"score\":8.2,"
+                            + "\"startLocation\":{\"street\":\"1 rue de Paris\",\"city\":\"Lille\",\"country\":\"France\",\"latitude\":50.63,\"longitude\":3.06},"
+                            + "\"endLocation\":{\"street\":\"2 rue de Lyon\",\"city\":\"Lille\",\"country\":\"France\",\"latitude\":50.64,\"longitude\":3.07},"
+                            + "\"locations\":[%s,%s],"
+                            + "\"behaviors\":[{\"behaviorId\":%d,\"type\":\"HARD_BRAKING\",\"startDate\":\"%s\",\"endDate\":\"%s\",\"value\":1.2,\"defaultValue\":1.0,\"reasons\":[],\"count\":1}]}",
+                    i, date(i), date(i + 1800), location(i), location(i + 1), i, date(i + 60), date(i + 61)));
+        }
+        return builder.append(']').toString();
+    }
+
+    static String fleetStatus(int vehicles) {
+        StringBuilder builder = new StringBuilder(vehicles * 512)
+                .append("{\"id\":\"fleet-1\",\"name\":\"Fleet\",\"company\":\"Xee\",\"vehicles\":[");
+        for (int i = 0; i < vehicles; i++) {
+            if (i > 0) builder.append(',');
+            builder.append("{\"vehicleId\":\"vehicle-").append(i).append("\",")
+                    .append("\"location\":").append(location(i)).append(',')
+                    .append("\"accelerometer\":{\"x\":-12.0,\"y\":4.0,\"z\":980.0,\"date\":\"").append(date(i)).append("\"},")
+                    .append("\"createdAt\":\"").append(date(i)).append("\",")
+                    .append("\"updatedAt\":\"").append(date(i + 1)).append("\",")
+                    .append("\"signals\":[");
+            for (int j = 0; j < SIGNALS.length; j++) {
+                if (j > 0) builder.append(',');
+                builder.append(signal(i * SIGNALS.length + j));
+            }
+            builder.append("]}");
+        }
+        return builder.append("]}").toString();
+    }
+
+    private static String signal(int index) {
+        return String.format(Locale.US, "{\"name\":\"%s\",\"value\":%.2f,\"date\":\"%s\"}",
+                SIGNALS[index % SIGNALS.length], index * 0.5, date(index / SIGNALS.length));
+    }
+
+    private static String location(int index) {
+        return String.format(Locale.US,
+                "{\"latitude\":%.6f,\"longitude\":%.6f,\"altitude\":35.0,\"heading\":%d,"
+                        + "\"street\":\"1 rue de Paris\",\"city\":\"Lille\",\"country\":\"France\",\"date\":\"%s\"}",
+                50.63 + index * 0.0001, 3.06 + index * 0.0001, index % 360, date(index));
+    }
+}
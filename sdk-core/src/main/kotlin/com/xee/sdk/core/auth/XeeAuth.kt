@@ -18,23 +18,21 @@ package com.xee.sdk.core.auth
 
 import android.util.Base64
 import android.util.Log
-import com.google.gson.*
+import com.google.gson.GsonBuilder
+import com.xee.sdk.core.common.DateDeserializer
 import com.xee.sdk.core.common.HttpHeaders
 import com.xee.sdk.core.common.XeeEnv
+import com.xee.sdk.core.common.XeeHttpClient
 import com.xee.sdk.core.auth.endpoint.AuthEndpoint
 import com.xee.sdk.core.common.interceptor.LogRequestInterceptor
 import com.xee.sdk.core.common.model.buildThrowableError
 import io.reactivex.Completable
 import io.reactivex.android.schedulers.AndroidSchedulers
 import io.reactivex.schedulers.Schedulers
-import okhttp3.OkHttpClient
 import retrofit2.Converter
 import retrofit2.Retrofit
 import retrofit2.adapter.rxjava2.RxJava2CallAdapterFactory
 import retrofit2.converter.gson.GsonConverterFactory
-import java.lang.reflect.Type
-import java.text.ParseException
-import java.text.SimpleDateFormat
 import java.util.*
 import java.util.concurrent.TimeUnit
 
@@ -55,7 +53,6 @@ class XeeAuth @JvmOverloads constructor(environment: XeeEnv, private val enableL
 
         private val CONVERTER_FACTORY: Converter.Factory = GsonConverterFactory.create(GsonBuilder().registerTypeAdapter(Date::class.java, DateDeserializer()).create())
         private val LOG_INTERCEPTOR = LogRequestInterceptor()
-        private val DATE_FORMATTER = SimpleDateFormat(DATE_FORMAT, Locale.US)
         @JvmField
         var logged: Boolean = false
         var enableOAuthLog: Boolean = false
@@ -69,45 +66,14 @@ class XeeAuth @JvmOverloads constructor(environment: XeeEnv, private val enableL
         initAuthEndpoint(environment)
     }
 
-    /**
-     * Allows to serialize and deserialize a Date and format it
-     */
-    private class DateDeserializer : JsonSerializer<Date>, JsonDeserializer<Date> {
-        @Synchronized override fun serialize(date: Date, type: Type, jsonSerializationContext: JsonSerializationContext): JsonElement {
-            return JsonPrimitive(DATE_FORMATTER.format(date))
-        }
-
-        @Synchronized
-        @Throws(JsonParseException::class)
-        override fun deserialize(element: JsonElement, arg1: Type, arg2: JsonDeserializationContext): Date? {
-            val date = element.asString
-            var formatter = SimpleDateFormat(DATE_FORMAT, Locale.US)
-            formatter.timeZone = TimeZone.getTimeZone("UTC")
-
-            try {
-                return formatter.parse(date)
-            } catch (e: ParseException) {
-                try {
-                    // if date parsed has failed with the default format, then try with the second one
-                    formatter = SimpleDateFormat(DATE_FORMAT_WITH_MS, Locale.US)
-                    formatter.timeZone = TimeZone.getTimeZone("UTC")
-                    return formatter.parse(date)
-                } catch (e: ParseException) {
-                    if (enableOAuthLog) Log.e(TAG, "Date deserialization error: ", e)
-                }
-
-                return null
-            }
-        }
-    }
-
     /**
      * Init the Auth endpoint
 
      * @param env the [XeeEnv]
      */
     private fun initAuthEndpoint(env: XeeEnv) {
-        val authClientBuilder = OkHttpClient.Builder()
+        // The shared client has the timeouts of the first XeeEnv, so each module applies its own
+        val authClientBuilder = XeeHttpClient[env].newBuilder()
                 .connectTimeout(env.connectTimeout, TimeUnit.MILLISECONDS)
                 .readTimeout(env.readTimeout, TimeUnit.MILLISECONDS)
 
@@ -140,6 +106,8 @@ class XeeAuth @JvmOverloads constructor(environment: XeeEnv, private val enableL
 
                 override fun onSuccess(code: String, redirectUri: String?) {
                     authEndpoint.obtainToken(AuthEndpoint.GrantTypes.AUTHORIZATION_CODE, code, redirectUri, buildBasicAuthenticationHeader(xeeEnv))
+                            // The cached responses belong to the previous user, who may not have been disconnected
+                            .doOnNext { XeeHttpClient.cache?.evictAll() }
                             .observeOn(AndroidSchedulers.mainThread())
                             .subscribeOn(Schedulers.io())
                             .subscribe({ token ->
@@ -178,6 +146,8 @@ class XeeAuth @JvmOverloads constructor(environment: XeeEnv, private val enableL
 
             override fun onLoggedAfterRegistration(code: String, redirectUri: String?) {
                 authEndpoint.obtainToken(AuthEndpoint.GrantTypes.AUTHORIZATION_CODE, code, redirectUri, buildBasicAuthenticationHeader(xeeEnv))
+                        // The cached responses belong to the previous user, who may not have been disconnected
+                        .doOnNext { XeeHttpClient.cache?.evictAll() }
                         .observeOn(AndroidSchedulers.mainThread())
                         .subscribeOn(Schedulers.io())
                         .subscribe({ token ->
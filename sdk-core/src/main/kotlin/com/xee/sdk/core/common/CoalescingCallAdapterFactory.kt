@@ -0,0 +1,85 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.xee.sdk.core.common
+
+import com.xee.sdk.core.common.metrics.RouteResolver
+import io.reactivex.Observable
+import retrofit2.Call
+import retrofit2.CallAdapter
+import retrofit2.Retrofit
+import retrofit2.http.GET
+import retrofit2.http.Streaming
+import java.lang.reflect.Type
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicReference
+
+/**
+ * CoalescingCallAdapterFactory wraps the [Observable] call adapters of another [CallAdapter.Factory]
+ * so the identical GET requests subscribed while one of them is in flight share its network call and its decoded result.
+ * Two requests are identical when their URLs, including the path parameters and the query, are equal.
+ * The subscribers of a shared request receive the same decoded instances, so they must not modify them:
+ * a change made by one of them would be seen by the others. Copy a model before modifying it.
+ * As it is installed in every module, it also registers the routes of all the endpoints in the [RouteResolver],
+ * so the circuits and the metrics are keyed by the same templates whatever the configuration
+ * @author Julien Cholin
+ * @since 4.2.0
+ */
+class CoalescingCallAdapterFactory(private val delegate: CallAdapter.Factory) : CallAdapter.Factory() {
+
+    private val inFlight = ConcurrentHashMap<String, Observable<Any>>()
+
+    override fun get(returnType: Type, annotations: Array<Annotation>, retrofit: Retrofit): CallAdapter<*, *>? {
+        val adapter = delegate.get(returnType, annotations, retrofit) ?: return null
+        annotations.endpointRoute()?.let { RouteResolver.register(it) }
+
+        // A streamed body can only be read once, so it can't be shared
+        if (getRawType(returnType) != Observable::class.java
+                || annotations.none { it is GET }
+                || annotations.any { it is Streaming }) return adapter
+
+        @Suppress("UNCHECKED_CAST")
+        return CoalescingCallAdapter(adapter as CallAdapter<Any, Any>)
+    }
+
+    private inner class CoalescingCallAdapter(private val adapter: CallAdapter<Any, Any>) : CallAdapter<Any, Any> {
+
+        override fun responseType(): Type = adapter.responseType()
+
+        override fun adapt(call: Call<Any>): Any {
+            @Suppress("UNCHECKED_CAST")
+            val source = adapter.adapt(call) as Observable<Any>
+            // Building the request may fail, like a converter error, so it's done on subscription to be reported by onError
+            return Observable.defer {
+                val key = call.request().url().toString()
+                inFlight[key] ?: share(key, source)
+            }
+        }
+    }
+
+    /**
+     * Registers the source as the call in flight for the key, unless another one has been registered meanwhile
+     */
+    private fun share(key: String, source: Observable<Any>): Observable<Any> {
+        // cache() subscribes once to the source and replays its result to the late subscribers.
+        // The call is forgotten before its result is replayed, so a subscriber subscribing again on completion,
+        // like repeat(), sends a new request. Only this entry is removed, never a newer one registered for the key
+        val registered = AtomicReference<Observable<Any>>()
+        val shared = source.doOnTerminate { inFlight.remove(key, registered.get()) }.cache()
+        registered.set(shared)
+        return inFlight.putIfAbsent(key, shared) ?: shared
+    }
+}
@@ -29,6 +29,7 @@ object HttpCodes {
     const val UNAUTHORIZED_CODE = 401
     const val FORBIDDEN_CODE = 403
     const val BAD_GATEWAY = 502
+    const val SERVICE_UNAVAILABLE = 503
     const val GATEWAY_TIMEOUT = 504
 }
 
@@ -39,6 +40,12 @@ object HttpHeaders {
     const val HEADER_AUTHORIZATION = "Authorization"
     const val HEADER_BEARER = "Bearer "
     const val HEADER_BASIC = "Basic "
+    const val HEADER_XEE_CACHE = "X-Xee-Cache"
+
+    /**
+     * Marks the endpoint methods of the slowly changing resources, cached by the [com.xee.sdk.core.common.cache.XeeCache]
+     */
+    const val CACHEABLE = "$HEADER_XEE_CACHE: true"
 }
 
 /**
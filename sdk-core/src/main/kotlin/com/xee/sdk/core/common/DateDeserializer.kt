@@ -17,55 +17,183 @@
 package com.xee.sdk.core.common
 
 import android.util.Log
-import com.google.gson.*
-import java.lang.reflect.Type
-import java.text.ParseException
-import java.text.SimpleDateFormat
+import com.google.gson.TypeAdapter
+import com.google.gson.stream.JsonReader
+import com.google.gson.stream.JsonToken
+import com.google.gson.stream.JsonWriter
+import java.io.IOException
 import java.util.*
 
 /**
- * Date deserializer
+ * Date deserializer, reads and writes the [DATE_FORMAT] and [DATE_FORMAT_WITH_MS] UTC dates.
+ * The dates are parsed directly from their characters, without any lock nor [java.text.SimpleDateFormat],
+ * so the adapter can be used concurrently by all the Gson instances
+ * @param enableLog true to log the dates which can't be parsed by this adapter
  * @author Julien Cholin
  * @since 4.0.0
  */
-class DateDeserializer(enableLog: Boolean = false) : JsonSerializer<Date>, JsonDeserializer<Date> {
-
-    init {
-        ENABLE_LOG = enableLog
-    }
+class DateDeserializer(private val enableLog: Boolean = false) : TypeAdapter<Date>() {
 
     companion object {
         val TAG = DateDeserializer::class.java.simpleName
         const val DATE_FORMAT = "yyyy-MM-dd'T'HH:mm:ss'Z'"
         const val DATE_FORMAT_WITH_MS = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'"
-        private val DATE_FORMATTER = SimpleDateFormat(DATE_FORMAT, Locale.US)
-        var ENABLE_LOG:Boolean = false
-    }
+        /**
+         * Log the dates which can't be parsed by all the adapters, each module only enables the logs of its own adapter
+         */
+        var ENABLE_LOG: Boolean = false
 
-    @Synchronized override fun serialize(date: Date, type: Type, jsonSerializationContext: JsonSerializationContext): JsonElement {
-        return JsonPrimitive(DATE_FORMATTER.format(date))
-    }
+        private const val MILLIS_PER_SECOND = 1000L
+        private const val MILLIS_PER_DAY = 24 * 60 * 60 * MILLIS_PER_SECOND
+
+        /**
+         * Parse a date formatted with [DATE_FORMAT] or [DATE_FORMAT_WITH_MS]
+         * @param date the formatted date
+         * @return the time in ms since epoch, or null if the date doesn't match any of the formats
+         */
+        @JvmStatic
+        fun parseMillis(date: CharSequence): Long? {
+            // yyyy-MM-ddTHH:mm:ssZ is the shortest accepted form
+            if (date.length < 20) return null
+            if (date[4] != '-' || date[7] != '-' || date[10] != 'T' || date[13] != ':' || date[16] != ':') return null
+
+            val year = digits(date, 0, 4)
+            val month = digits(date, 5, 2)
+            val day = digits(date, 8, 2)
+            val hour = digits(date, 11, 2)
+            val minute = digits(date, 14, 2)
+            val second = digits(date, 17, 2)
+            if (year < 0 || month !in 1..12 || day !in 1..31 || hour !in 0..23 || minute !in 0..59 || second !in 0..60) return null
+
+            var millis = 0
+            var index = 19
+            if (date[index] == '.') {
+                // Only the milliseconds are kept, the next digits are ignored
+                index++
+                var scale = 100
+                val fractionStart = index
+                while (index < date.length && date[index] in '0'..'9') {
+                    millis += (date[index] - '0') * scale
+                    scale /= 10
+                    index++
+                }
+                if (index == fractionStart) return null
+            }
+            if (index != date.length - 1 || date[index] != 'Z') return null
+
+            return daysFromCivil(year, month, day) * MILLIS_PER_DAY +
+                    ((hour * 60L + minute) * 60L + second) * MILLIS_PER_SECOND + millis
+        }
+
+        /**
+         * Parse a date formatted with [DATE_FORMAT] or [DATE_FORMAT_WITH_MS]
+         * @param date the formatted date
+         * @return the [Date], or null if the date doesn't match any of the formats
+         */
+        @JvmStatic
+        fun parse(date: CharSequence): Date? = parseMillis(date)?.let { Date(it) }
+
+        /**
+         * Format a date with [DATE_FORMAT] in UTC
+         * @param date the [Date] to format
+         */
+        @JvmStatic
+        fun format(date: Date): String = formatMillis(date.time)
+
+        /**
+         * Format a time in ms since epoch with [DATE_FORMAT] in UTC
+         * @param millis the time in ms since epoch
+         */
+        @JvmStatic
+        fun formatMillis(millis: Long): String {
+            var days = millis / MILLIS_PER_DAY
+            var millisOfDay = millis % MILLIS_PER_DAY
+            if (millisOfDay < 0) {
+                millisOfDay += MILLIS_PER_DAY
+                days--
+            }
+            val secondsOfDay = (millisOfDay / MILLIS_PER_SECOND).toInt()
 
-    @Synchronized
-    @Throws(JsonParseException::class)
-    override fun deserialize(element: JsonElement, arg1: Type, arg2: JsonDeserializationContext): Date? {
-        val date = element.asString
-        var formatter = SimpleDateFormat(DATE_FORMAT, Locale.US)
-        formatter.timeZone = TimeZone.getTimeZone("UTC")
-
-        try {
-            return formatter.parse(date)
-        } catch (e: ParseException) {
-            try {
-                // if date parsed has failed with the default format, then try with the second one
-                formatter = SimpleDateFormat(DATE_FORMAT_WITH_MS, Locale.US)
-                formatter.timeZone = TimeZone.getTimeZone("UTC")
-                return formatter.parse(date)
-            } catch (e: ParseException) {
-                if (ENABLE_LOG) Log.e(TAG, "Date deserialization error: ", e)
+            // Civil date from the number of days since epoch, see http://howardhinnant.github.io/date_algorithms.html
+            val z = days + 719468
+            val era = (if (z >= 0) z else z - 146096) / 146097
+            val doe = (z - era * 146097).toInt()
+            val yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365
+            val doy = doe - (365 * yoe + yoe / 4 - yoe / 100)
+            val mp = (5 * doy + 2) / 153
+            val day = doy - (153 * mp + 2) / 5 + 1
+            val month = if (mp < 10) mp + 3 else mp - 9
+            val year = yoe + era * 400 + if (month <= 2) 1 else 0
+
+            val chars = CharArray(20)
+            writeDigits(chars, 0, year.toInt(), 4)
+            chars[4] = '-'
+            writeDigits(chars, 5, month, 2)
+            chars[7] = '-'
+            writeDigits(chars, 8, day, 2)
+            chars[10] = 'T'
+            writeDigits(chars, 11, secondsOfDay / 3600, 2)
+            chars[13] = ':'
+            writeDigits(chars, 14, secondsOfDay / 60 % 60, 2)
+            chars[16] = ':'
+            writeDigits(chars, 17, secondsOfDay % 60, 2)
+            chars[19] = 'Z'
+            return String(chars)
+        }
+
+        /**
+         * @return the number parsed from the [count] digits starting at [start], or -1 if a character isn't a digit
+         */
+        private fun digits(chars: CharSequence, start: Int, count: Int): Int {
+            var value = 0
+            for (i in start until start + count) {
+                val c = chars[i]
+                if (c !in '0'..'9') return -1
+                value = value * 10 + (c - '0')
             }
+            return value
+        }
+
+        private fun writeDigits(chars: CharArray, start: Int, value: Int, count: Int) {
+            var remaining = value
+            for (i in start + count - 1 downTo start) {
+                chars[i] = '0' + remaining % 10
+                remaining /= 10
+            }
+        }
 
+        /**
+         * Number of days since epoch of a civil date, see http://howardhinnant.github.io/date_algorithms.html
+         */
+        private fun daysFromCivil(year: Int, month: Int, day: Int): Long {
+            val y = if (month <= 2) year - 1 else year
+            val era = (if (y >= 0) y else y - 399) / 400
+            val yoe = y - era * 400
+            val doy = (153 * (if (month > 2) month - 3 else month + 9) + 2) / 5 + day - 1
+            val doe = yoe * 365 + yoe / 4 - yoe / 100 + doy
+            return era * 146097L + doe - 719468
+        }
+    }
+
+    @Throws(IOException::class)
+    override fun write(writer: JsonWriter, date: Date?) {
+        if (date == null) {
+            writer.nullValue()
+        } else {
+            writer.value(format(date))
+        }
+    }
+
+    @Throws(IOException::class)
+    override fun read(reader: JsonReader): Date? {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull()
             return null
         }
+
+        val date = reader.nextString()
+        val parsedDate = parse(date)
+        if (parsedDate == null && (enableLog || ENABLE_LOG)) Log.e(TAG, "Date deserialization error: " + date)
+        return parsedDate
     }
 }
\ No newline at end of file
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.xee.sdk.core.common
+
+import retrofit2.http.DELETE
+import retrofit2.http.GET
+import retrofit2.http.HEAD
+import retrofit2.http.HTTP
+import retrofit2.http.PATCH
+import retrofit2.http.POST
+import retrofit2.http.PUT
+
+/**
+ * Helpers for the Retrofit factories working per route
+ * @author Julien Cholin
+ * @since 4.2.0
+ */
+
+/**
+ * @return the route template declared by the HTTP method annotation of an endpoint method, null if there isn't any
+ */
+internal fun Array<out Annotation>.endpointRoute(): String? {
+    for (annotation in this) {
+        when (annotation) {
+            is GET -> return annotation.value
+            is POST -> return annotation.value
+            is PUT -> return annotation.value
+            is PATCH -> return annotation.value
+            is DELETE -> return annotation.value
+            is HEAD -> return annotation.value
+            is HTTP -> return annotation.path
+        }
+    }
+    return null
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.xee.sdk.core.common
+
+import com.google.gson.stream.JsonReader
+import com.google.gson.stream.JsonToken
+import com.google.gson.stream.JsonWriter
+import java.io.IOException
+import java.util.*
+
+/**
+ * Helpers for the streaming type adapters of the models
+ * @author Julien Cholin
+ * @since 4.2.0
+ */
+
+/**
+ * Read the next value as a double, or return the default one if the value is null
+ */
+@Throws(IOException::class)
+fun JsonReader.nextDoubleOrDefault(defaultValue: Double): Double = if (peek() == JsonToken.NULL) {
+    nextNull()
+    defaultValue
+} else {
+    nextDouble()
+}
+
+/**
+ * Read the next value as a string, or null if the value is null
+ */
+@Throws(IOException::class)
+fun JsonReader.nextStringOrNull(): String? = if (peek() == JsonToken.NULL) {
+    nextNull()
+    null
+} else {
+    nextString()
+}
+
+/**
+ * Read the next value as a [Date] formatted by the API, or null if the value is null or isn't a date
+ */
+@Throws(IOException::class)
+fun JsonReader.nextDateOrNull(): Date? = nextStringOrNull()?.let { DateDeserializer.parse(it) }
+
+/**
+ * Write a [Date] formatted as the API expects it, or null
+ */
+@Throws(IOException::class)
+fun JsonWriter.dateValue(date: Date?): JsonWriter = if (date == null) nullValue() else value(DateDeserializer.format(date))
+
+//region [MODELS]
+/**
+ * Read the next signal object, or return null if the value is null.
+ * The fields are read in locals and passed to [create], so that each module builds its own model
+ * @param create the factory of the model from the name, the value and the date
+ */
+@Throws(IOException::class)
+inline fun <T> JsonReader.nextSignalOrNull(create: (name: String?, value: Double, date: Date?) -> T): T? {
+    if (peek() == JsonToken.NULL) {
+        nextNull()
+        return null
+    }
+    var name: String? = null
+    var value = 0.0
+    var date: Date? = null
+    beginObject()
+    while (hasNext()) {
+        when (nextName()) {
+            "name" -> name = nextStringOrNull()
+            "value" -> value = nextDoubleOrDefault(value)
+            "date" -> date = nextDateOrNull()
+            else -> skipValue()
+        }
+    }
+    endObject()
+    return create(name, value, date)
+}
+
+/**
+ * Read the next location object, or return null if the value is null
+ * @param create the factory of the model from the latitude, the longitude, the altitude, the heading,
+ * the street, the city, the country and the date
+ */
+@Throws(IOException::class)
+inline fun <T> JsonReader.nextLocationOrNull(create: (latitude: Double, longitude: Double, altitude: Double, heading: Double,
+                                                      street: String?, city: String?, country: String?, date: Date?) -> T): T? {
+    if (peek() == JsonToken.NULL) {
+        nextNull()
+        return null
+    }
+    var latitude = 0.0
+    var longitude = 0.0
+    var altitude = 0.0
+    var heading = 0.0
+    var street: String? = null
+    var city: String? = null
+    var country: String? = null
+    var date: Date? = null
+    beginObject()
+    while (hasNext()) {
+        when (nextName()) {
+            "latitude" -> latitude = nextDoubleOrDefault(latitude)
+            "longitude" -> longitude = nextDoubleOrDefault(longitude)
+            "altitude" -> altitude = nextDoubleOrDefault(altitude)
+            "heading" -> heading = nextDoubleOrDefault(heading)
+            "street" -> street = nextStringOrNull()
+            "city" -> city = nextStringOrNull()
+            "country" -> country = nextStringOrNull()
+            "date" -> date = nextDateOrNull()
+            else -> skipValue()
+        }
+    }
+    endObject()
+    return create(latitude, longitude, altitude, heading, street, city, country, date)
+}
+
+/**
+ * Read the next accelerometer object, or return null if the value is null
+ * @param create the factory of the model from the x, y and z values and the date
+ */
+@Throws(IOException::class)
+inline fun <T> JsonReader.nextAccelerometerOrNull(create: (x: Double, y: Double, z: Double, date: Date?) -> T): T? {
+    if (peek() == JsonToken.NULL) {
+        nextNull()
+        return null
+    }
+    var x = 0.0
+    var y = 0.0
+    var z = 0.0
+    var date: Date? = null
+    beginObject()
+    while (hasNext()) {
+        when (nextName()) {
+            "x" -> x = nextDoubleOrDefault(x)
+            "y" -> y = nextDoubleOrDefault(y)
+            "z" -> z = nextDoubleOrDefault(z)
+            "date" -> date = nextDateOrNull()
+            else -> skipValue()
+        }
+    }
+    endObject()
+    return create(x, y, z, date)
+}
+
+/**
+ * Write a signal object
+ */
+@Throws(IOException::class)
+fun JsonWriter.signalValue(signalName: String?, value: Double, date: Date?): JsonWriter {
+    beginObject()
+    name("name").value(signalName)
+    name("value").value(value)
+    name("date").dateValue(date)
+    return endObject()
+}
+
+/**
+ * Write a location object
+ */
+@Throws(IOException::class)
+fun JsonWriter.locationValue(latitude: Double, longitude: Double, altitude: Double, heading: Double,
+                             street: String?, city: String?, country: String?, date: Date?): JsonWriter {
+    beginObject()
+    name("latitude").value(latitude)
+    name("longitude").value(longitude)
+    name("altitude").value(altitude)
+    name("heading").value(heading)
+    name("street").value(street)
+    name("city").value(city)
+    name("country").value(country)
+    name("date").dateValue(date)
+    return endObject()
+}
+
+/**
+ * Write an accelerometer object
+ */
+@Throws(IOException::class)
+fun JsonWriter.accelerometerValue(x: Double, y: Double, z: Double, date: Date?): JsonWriter {
+    beginObject()
+    name("x").value(x)
+    name("y").value(y)
+    name("z").value(z)
+    name("date").dateValue(date)
+    return endObject()
+}
+//endregion
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.xee.sdk.core.common
+
+/**
+ * RetryPolicy configures how the requests failing on a transient error (bad gateway, service unavailable,
+ * gateway timeout or connection error) are sent again
+ * @param maxAttempts the maximum number of attempts including the first one, 1 to disable the retries
+ * @param baseDelay the delay in ms before the first retry, doubled before each next retry
+ * @param maxDelay the maximum delay in ms before a retry, a longer Retry-After isn't waited
+ * @param jitter the part of the delay randomly removed, between 0 and 1, so the clients don't retry all at once
+ * @param idempotentOnly true to only retry the methods which can be sent twice safely (GET, HEAD, PUT, DELETE, OPTIONS)
+ * @author Julien Cholin
+ * @since 4.2.0
+ */
+data class RetryPolicy @JvmOverloads constructor(val maxAttempts: Int = MAX_ATTEMPTS,
+                                                 val baseDelay: Long = BASE_DELAY,
+                                                 val maxDelay: Long = MAX_DELAY,
+                                                 val jitter: Double = JITTER,
+                                                 val idempotentOnly: Boolean = true) {
+
+    companion object {
+        const val MAX_ATTEMPTS: Int = 3
+        const val BASE_DELAY: Long = 500
+        const val MAX_DELAY: Long = 10 * 1000
+        const val JITTER: Double = 0.5
+
+        /**
+         * Policy which never retries
+         */
+        @JvmField
+        val NONE = RetryPolicy(maxAttempts = 1)
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.xee.sdk.core.common
+
+/**
+ * Listener to observe the token refreshes, for instance to collect metrics
+ * @author Julien Cholin
+ * @since 4.2.0
+ */
+interface TokenRefreshListener {
+    /**
+     * Fired when a background refresh has been scheduled
+     * @param delay the time in ms before the refresh
+     */
+    fun onRefreshScheduled(delay: Long)
+
+    /**
+     * Fired when the token has been refreshed
+     * @param duration the time in ms spent to refresh the token
+     * @param proactive true if the refresh has been done in background before the expiration, false if it follows a rejected request
+     */
+    fun onRefreshed(duration: Long, proactive: Boolean)
+
+    /**
+     * Fired when the token couldn't be refreshed
+     * @param error the [Throwable], null if the API has refused the refresh
+     * @param proactive true if the refresh has been done in background before the expiration, false if it follows a rejected request
+     */
+    fun onRefreshFailed(error: Throwable?, proactive: Boolean)
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.xee.sdk.core.common
+
+import com.xee.sdk.core.common.model.Token
+import io.reactivex.Completable
+import io.reactivex.disposables.Disposable
+import io.reactivex.schedulers.Schedulers
+import java.util.*
+import java.util.concurrent.TimeUnit
+
+/**
+ * TokenRefreshScheduler refreshes the [Token] in background shortly before it expires,
+ * so the requests don't have to be rejected to trigger the refresh
+ * @author Julien Cholin
+ * @since 4.2.0
+ */
+internal class TokenRefreshScheduler(private val xeeEnv: XeeEnv, private val refresher: TokenRefresher) {
+
+    private val random = Random()
+    private var pendingRefresh: Disposable? = null
+
+    /**
+     * Schedule the refresh of the given token, replacing the one previously scheduled
+     * @param token the [Token] to refresh, null to only cancel the pending refresh
+     * @param issuedAt the time in ms when the token has been stored
+     */
+    @Synchronized
+    fun schedule(token: Token?, issuedAt: Long) {
+        pendingRefresh?.dispose()
+        pendingRefresh = null
+
+        // Without the expiration we can't anticipate anything, the refresh will be done when a request is rejected
+        if (token == null || token.expiresIn <= 0 || issuedAt <= 0) return
+
+        val expiresAt = issuedAt + TimeUnit.SECONDS.toMillis(token.expiresIn)
+        val jitter = if (xeeEnv.tokenRefreshJitter > 0) (random.nextDouble() * xeeEnv.tokenRefreshJitter).toLong() else 0
+        val delay = Math.max(0, expiresAt - xeeEnv.tokenRefreshMargin - jitter - System.currentTimeMillis())
+        xeeEnv.tokenRefreshListener?.onRefreshScheduled(delay)
+
+        val accessToken = token.accessToken
+        pendingRefresh = Completable.timer(delay, TimeUnit.MILLISECONDS, Schedulers.io())
+                .andThen(Completable.fromAction { refresher.refresh(accessToken, true) })
+                .subscribe({}, {
+                    // Nothing to do, the token will be refreshed by the ApiInterceptor when a request is rejected
+                })
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.xee.sdk.core.common
+
+import com.xee.sdk.core.auth.XeeAuth
+import com.xee.sdk.core.auth.buildBasicAuthenticationHeader
+import com.xee.sdk.core.auth.endpoint.AuthEndpoint
+import com.xee.sdk.core.common.interceptor.LogRequestInterceptor
+import com.xee.sdk.core.common.model.Token
+import retrofit2.Retrofit
+import retrofit2.adapter.rxjava2.RxJava2CallAdapterFactory
+import retrofit2.converter.gson.GsonConverterFactory
+import java.util.*
+import java.util.concurrent.TimeUnit
+
+/**
+ * TokenRefresher refreshes the [Token] stored in the [TokenStorage].
+ * Only one refresh is in flight at a time: the callers arriving while a refresh is running wait for it
+ * and get its result instead of sending their own refresh request
+ * @author Julien Cholin
+ * @since 4.2.0
+ */
+class TokenRefresher private constructor(private val xeeEnv: XeeEnv, private val storage: TokenStorage) {
+
+    private lateinit var authService: AuthEndpoint
+    private val scheduler = TokenRefreshScheduler(xeeEnv, this)
+
+    init {
+        build()
+
+        // Each stored token is refreshed in background shortly before it expires
+        storage.addOnTokenChangedListener { token, _ -> scheduler.schedule(token, storage.getIssuedAt()) }
+        scheduler.schedule(storage.get(), storage.getIssuedAt())
+    }
+
+    /**
+     * Refresh the token unless it has already been refreshed since the given access token was used
+     * @param staleAccessToken the access token to replace
+     * @param proactive true if the token is refreshed before its expiration, false if it has been rejected by the API
+     * @return the fresh [Token], or null if the token couldn't be refreshed
+     */
+    fun refresh(staleAccessToken: String?, proactive: Boolean = false): Token? {
+        synchronized(this) {
+            val currentToken = storage.get() ?: return null
+
+            // Another request has refreshed the token while we were waiting, so reuse it
+            if (currentToken.accessToken != staleAccessToken) return currentToken
+
+            val listener = xeeEnv.tokenRefreshListener
+            val startTime = System.currentTimeMillis()
+            val refreshTokenResponse = try {
+                authService.refreshTokenResponse(AuthEndpoint.GrantTypes.REFRESH_TOKEN, currentToken.refreshToken).blockingFirst()
+            } catch (e: RuntimeException) {
+                listener?.onRefreshFailed(e, proactive)
+                throw e
+            }
+
+            if (!refreshTokenResponse.isSuccessful) {
+                listener?.onRefreshFailed(null, proactive)
+                return null
+            }
+
+            val token = refreshTokenResponse.body()!!
+            storage.store(token)
+            listener?.onRefreshed(System.currentTimeMillis() - startTime, proactive)
+            return token
+        }
+    }
+
+    private fun build() {
+        val apiClientBuilder = XeeHttpClient[xeeEnv].newBuilder()
+                .connectTimeout(xeeEnv.connectTimeout, TimeUnit.MILLISECONDS)
+                .readTimeout(xeeEnv.readTimeout, TimeUnit.MILLISECONDS)
+                .addInterceptor { chain ->
+                    val requestBuilder = chain.request().newBuilder()
+                            .header(HttpHeaders.HEADER_AUTHORIZATION, buildBasicAuthenticationHeader(xeeEnv))
+                    chain.proceed(requestBuilder.build())
+                }
+
+        // If the SDK is in debug mode, we log all the requests and the responses sent
+        if (XeeAuth.enableOAuthLog) apiClientBuilder.addInterceptor(LogRequestInterceptor())
+
+        // Build the retrofit interface and the API services
+        val apiRetrofit = Retrofit.Builder()
+                .baseUrl(String.format(Locale.FRANCE, XeeAuth.ROUTE_BASE, xeeEnv.environment))
+                .client(apiClientBuilder.build())
+                .addCallAdapterFactory(RxJava2CallAdapterFactory.create())
+                .addConverterFactory(GsonConverterFactory.create())
+                .build()
+
+        authService = apiRetrofit.create<AuthEndpoint>(AuthEndpoint::class.java)
+    }
+
+    companion object {
+        private var sInstance: TokenRefresher? = null
+
+        /**
+         * Returns the [TokenRefresher] shared by all the modules
+         * @param xeeEnv the [XeeEnv]
+         * @param storage the [TokenStorage] holding the token to refresh
+         */
+        @Synchronized
+        operator fun get(xeeEnv: XeeEnv, storage: TokenStorage): TokenRefresher {
+            var instance = sInstance
+            if (instance == null) {
+                instance = TokenRefresher(xeeEnv, storage)
+                sInstance = instance
+            }
+            return instance
+        }
+    }
+}
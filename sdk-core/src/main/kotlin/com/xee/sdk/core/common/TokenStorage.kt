@@ -20,41 +20,79 @@ import android.content.Context
 import android.content.SharedPreferences
 import com.google.gson.GsonBuilder
 import com.xee.sdk.core.common.model.Token
+import java.util.concurrent.CopyOnWriteArrayList
 
 /**
- * TokenStorage stores and provides the [Token]
+ * TokenStorage stores and provides the [Token].
+ * The token is kept in memory once loaded, the preferences are only written when it changes
  * @author Julien Cholin
  * @since 4.0.0
  */
 class TokenStorage private constructor(context: Context) : UniqueStorage<Token> {
     private val preferences: SharedPreferences
+    private val gson = GsonBuilder().create()
+
+    @Volatile
+    private var token: Token? = null
+    @Volatile
+    private var issuedAt: Long = 0
 
     init {
         preferences = context.getSharedPreferences(NAME, Context.MODE_PRIVATE)
+        token = preferences.getString(TOKEN_ID, null)?.let { gson.fromJson<Token>(it, Token::class.java) }
+        issuedAt = preferences.getLong(TOKEN_ISSUED_AT_ID, 0)
     }
 
-    override fun store(item: Token) {
-        preferences.edit().putString(TOKEN_ID, GsonBuilder().create().toJson(item)).apply()
+    private val onTokenChangedListeners = CopyOnWriteArrayList<(Token?, Token?) -> Unit>()
+
+    /**
+     * Add a listener notified with the new token and the previous one each time a token is stored,
+     * the new token is null when the token is dumped
+     */
+    internal fun addOnTokenChangedListener(listener: (token: Token?, previousToken: Token?) -> Unit) {
+        onTokenChangedListeners.add(listener)
     }
 
-    override fun get(): Token? {
-        val tokenFromPrefs = preferences.getString(TOKEN_ID, null)
-        return if (tokenFromPrefs != null) {
-            GsonBuilder().create().fromJson<Token>(tokenFromPrefs, Token::class.java)
-        } else {
-            null
+    override fun store(item: Token) {
+        val previousToken = synchronized(this) {
+            val previous = token
+            token = item
+            issuedAt = System.currentTimeMillis()
+            // apply() updates the preferences in memory and writes them to disk asynchronously
+            preferences.edit()
+                    .putString(TOKEN_ID, gson.toJson(item))
+                    .putLong(TOKEN_ISSUED_AT_ID, issuedAt)
+                    .apply()
+            previous
         }
+        onTokenChangedListeners.forEach { it(item, previousToken) }
     }
 
+    override fun get(): Token? = token
+
+    /**
+     * @return the time in ms when the current token has been stored, 0 if unknown
+     */
+    fun getIssuedAt(): Long = issuedAt
+
     fun dump() {
-        preferences.edit().remove(TOKEN_ID).apply()
+        val previousToken = synchronized(this) {
+            val previous = token
+            token = null
+            issuedAt = 0
+            preferences.edit().remove(TOKEN_ID).remove(TOKEN_ISSUED_AT_ID).apply()
+            previous
+        }
+        onTokenChangedListeners.forEach { it(null, previousToken) }
     }
 
     companion object {
         private val NAME = "com.xee.sdk.v4"
         private val TOKEN_ID = "com.xee.token.v4"
+        private val TOKEN_ISSUED_AT_ID = "com.xee.token.issued_at.v4"
         private var sInstance: TokenStorage? = null
 
+        @Synchronized
         operator fun get(context: Context): TokenStorage? {
             if (sInstance == null) {
                 sInstance = TokenStorage(context)
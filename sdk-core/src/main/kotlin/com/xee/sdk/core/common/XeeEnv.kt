@@ -18,6 +18,10 @@ package com.xee.sdk.core.common
 
 import android.content.Context
 import com.xee.sdk.core.auth.OAuth2Client
+import com.xee.sdk.core.common.breaker.CircuitBreakerListener
+import com.xee.sdk.core.common.breaker.CircuitBreakerPolicy
+import com.xee.sdk.core.common.governor.RateLimit
+import com.xee.sdk.core.common.metrics.XeeMetrics
 
 /**
  * XeeEnv to set an environment linked to the [OAuth2Client]
@@ -28,9 +32,88 @@ data class XeeEnv(val context: Context, val oAuthClient: OAuth2Client, val conne
 
     var tokenStorage: TokenStorage? = TokenStorage[context]
 
+    /**
+     * Maximum number of idle connections kept in the shared connection pool
+     */
+    var maxIdleConnections: Int = MAX_IDLE_CONNECTIONS
+
+    /**
+     * Time in ms an idle connection is kept alive in the shared connection pool
+     */
+    var keepAliveDuration: Long = KEEP_ALIVE_DURATION
+
+    /**
+     * Maximum number of requests executed concurrently against the same host
+     */
+    var maxRequestsPerHost: Int = MAX_REQUESTS_PER_HOST
+
+    /**
+     * Time in ms before the token expiration when the token is refreshed in background
+     */
+    var tokenRefreshMargin: Long = TOKEN_REFRESH_MARGIN
+
+    /**
+     * Maximum random time in ms added before the token refresh, so clients don't refresh all at once
+     */
+    var tokenRefreshJitter: Long = TOKEN_REFRESH_JITTER
+
+    /**
+     * Optional [TokenRefreshListener] to observe the token refreshes
+     */
+    var tokenRefreshListener: TokenRefreshListener? = null
+
+    /**
+     * Optional [XeeMetrics] receiving the timings and sizes of the requests, to set before creating the modules
+     */
+    var metrics: XeeMetrics? = null
+
+    /**
+     * Size in bytes of the disk cache of the slowly changing resources, 0 to disable the cache
+     */
+    var cacheSize: Long = 0
+
+    /**
+     * Size in bytes of the memory cache of the slowly changing resources, used when [cacheSize] is set
+     */
+    var memoryCacheSize: Int = MEMORY_CACHE_SIZE
+
+    /**
+     * Time in ms a cached resource is served without asking the API, it is revalidated afterwards
+     */
+    var cacheMaxAge: Long = CACHE_MAX_AGE
+
+    /**
+     * [RetryPolicy] of the requests failing on a transient error, [RetryPolicy.NONE] to disable the retries
+     */
+    var retryPolicy: RetryPolicy = RetryPolicy()
+
+    /**
+     * [RateLimit]s of the requests by route prefix, like "vehicles/" for all the vehicle routes or "" for all the routes,
+     * to set before creating the modules. The requests exceeding them are queued
+     */
+    val rateLimits: MutableMap<String, RateLimit> = HashMap()
+
+    /**
+     * Optional [CircuitBreakerPolicy] of the routes. When set, the calls of a failing route are rejected
+     * with a [com.xee.sdk.core.common.breaker.CircuitOpenException] until its circuit closes again. Null, by default, to never reject them
+     */
+    var circuitBreakerPolicy: CircuitBreakerPolicy? = null
+
+    /**
+     * Optional [CircuitBreakerListener] to observe the state changes of the circuits
+     */
+    var circuitBreakerListener: CircuitBreakerListener? = null
+
     companion object {
         const val ENVIRONMENT: String = "api"
         const val TIMEOUT: Long = 30 * 1000
+        const val MAX_IDLE_CONNECTIONS: Int = 5
+        const val KEEP_ALIVE_DURATION: Long = 5 * 60 * 1000
+        const val MAX_REQUESTS_PER_HOST: Int = 5
+        const val TOKEN_REFRESH_MARGIN: Long = 60 * 1000
+        const val TOKEN_REFRESH_JITTER: Long = 30 * 1000
+        const val MEMORY_CACHE_SIZE: Int = 256 * 1024
+        const val CACHE_MAX_AGE: Long = 5 * 60 * 1000
         lateinit var instance: TokenStorage
             private set
     }
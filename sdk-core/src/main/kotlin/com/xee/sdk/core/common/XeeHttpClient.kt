@@ -0,0 +1,132 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.xee.sdk.core.common
+
+import com.xee.sdk.core.common.breaker.CircuitBreaker
+import com.xee.sdk.core.common.cache.XeeCache
+import com.xee.sdk.core.common.governor.RateLimit
+import com.xee.sdk.core.common.governor.RequestGovernor
+import com.xee.sdk.core.common.interceptor.CircuitBreakerInterceptor
+import com.xee.sdk.core.common.interceptor.RetryInterceptor
+import com.xee.sdk.core.common.metrics.MetricsEventListener
+import com.xee.sdk.core.common.metrics.XeeMetrics
+import okhttp3.ConnectionPool
+import okhttp3.Dispatcher
+import okhttp3.OkHttpClient
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.TimeUnit
+
+/**
+ * XeeHttpClient provides the [OkHttpClient] shared by all the SDK modules.
+ * Each module must derive its own client with [OkHttpClient.newBuilder] so the connection pool,
+ * the dispatcher and the TLS sessions are shared across XeeAuth, XeeApi and XeeFleet.
+ * The client is configured by the first [XeeEnv], so each module applies the timeouts of its own [XeeEnv] on its builder
+ * @author Julien Cholin
+ * @since 4.2.0
+ */
+object XeeHttpClient {
+
+    @Volatile
+    private var sInstance: OkHttpClient? = null
+
+    /**
+     * The [XeeCache] of the shared client, null if the cache isn't enabled in the [XeeEnv]
+     */
+    @JvmStatic
+    var cache: XeeCache? = null
+        private set
+
+    /**
+     * The [CircuitBreaker] of the shared client, to read the state of the circuits of the routes,
+     * null if the circuit breaker isn't enabled in the [XeeEnv]
+     */
+    @JvmStatic
+    var circuitBreaker: CircuitBreaker? = null
+        private set
+
+    private val governors = ConcurrentHashMap<String, RequestGovernor>()
+
+    /**
+     * Returns the [RequestGovernor] of a family of routes, shared by all the modules like the client.
+     * The [RateLimit] of the first module governing the family is kept
+     * @param family the route prefix of the family
+     * @param rateLimit the [RateLimit] of the family
+     * @param metrics the [XeeMetrics] receiving the queue measures
+     */
+    internal fun governorOf(family: String, rateLimit: RateLimit, metrics: XeeMetrics?): RequestGovernor =
+            governors[family] ?: RequestGovernor(rateLimit, metrics).let { governors.putIfAbsent(family, it) ?: it }
+
+    /**
+     * Returns the shared [OkHttpClient], built from the first [XeeEnv] given
+     * @param xeeEnv the [XeeEnv] used to configure the client
+     */
+    @JvmStatic
+    operator fun get(xeeEnv: XeeEnv): OkHttpClient {
+        var client = sInstance
+        if (client == null) {
+            synchronized(this) {
+                client = sInstance
+                if (client == null) {
+                    client = build(xeeEnv)
+                    sInstance = client
+                }
+            }
+        }
+        return client!!
+    }
+
+    private fun build(xeeEnv: XeeEnv): OkHttpClient {
+        val dispatcher = Dispatcher()
+        dispatcher.maxRequestsPerHost = xeeEnv.maxRequestsPerHost
+
+        val builder = OkHttpClient.Builder()
+                .connectionPool(ConnectionPool(xeeEnv.maxIdleConnections, xeeEnv.keepAliveDuration, TimeUnit.MILLISECONDS))
+                .dispatcher(dispatcher)
+                .connectTimeout(xeeEnv.connectTimeout, TimeUnit.MILLISECONDS)
+                .readTimeout(xeeEnv.readTimeout, TimeUnit.MILLISECONDS)
+
+        // Cache the slowly changing resources if the application has enabled it
+        if (xeeEnv.cacheSize > 0) {
+            val xeeCache = XeeCache(xeeEnv)
+            xeeCache.install(builder)
+            cache = xeeCache
+        }
+
+        // The cache marker of the endpoints is an internal header, it must not be sent even if the cache is disabled
+        builder.addInterceptor { chain ->
+            val request = chain.request()
+            if (request.header(HttpHeaders.HEADER_XEE_CACHE) == null) chain.proceed(request)
+            else chain.proceed(request.newBuilder().removeHeader(HttpHeaders.HEADER_XEE_CACHE).build())
+        }
+
+        // Reject the calls of the failing routes before they wait for the timeouts if the application has enabled it,
+        // the retries are counted as one call
+        xeeEnv.circuitBreakerPolicy?.let { policy ->
+            val breaker = CircuitBreaker(policy, xeeEnv.circuitBreakerListener)
+            builder.addInterceptor(CircuitBreakerInterceptor(breaker, policy))
+            circuitBreaker = breaker
+        }
+
+        // Send again the requests failing on a transient error, the interceptors of the modules are run again for each attempt
+        builder.addInterceptor(RetryInterceptor(xeeEnv.retryPolicy))
+
+        // Measure each call if the application collects the metrics
+        xeeEnv.metrics?.let { builder.eventListenerFactory(MetricsEventListener.factory(it)) }
+
+        return builder.build()
+    }
+}
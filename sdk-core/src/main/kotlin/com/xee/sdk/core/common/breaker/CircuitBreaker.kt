@@ -0,0 +1,157 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.xee.sdk.core.common.breaker
+
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * CircuitBreaker tracks the outcome of the last calls of each route. When too many of them fail or are too slow,
+ * the circuit of the route opens and the calls are rejected with a [CircuitOpenException] without being sent.
+ * After [CircuitBreakerPolicy.openDuration], the circuit is half-open: one probe call is sent, and closes the circuit
+ * if it succeeds or opens it again if it fails
+ * @param policy the [CircuitBreakerPolicy] of the routes
+ * @param listener the optional [CircuitBreakerListener] of the state changes
+ * @param clock the current time in ms
+ * @author Julien Cholin
+ * @since 4.2.0
+ */
+class CircuitBreaker @JvmOverloads constructor(private val policy: CircuitBreakerPolicy,
+                                               private val listener: CircuitBreakerListener? = null,
+                                               private val clock: () -> Long = { System.currentTimeMillis() }) {
+
+    enum class State { CLOSED, OPEN, HALF_OPEN }
+
+    private val circuits = ConcurrentHashMap<String, Circuit>()
+
+    /**
+     * @return the state of the circuit of a route, [State.CLOSED] if the route hasn't been called yet
+     */
+    fun state(route: String): State = circuits[route]?.state() ?: State.CLOSED
+
+    /**
+     * @return the state of the circuit of each route called
+     */
+    fun states(): Map<String, State> {
+        val states = HashMap<String, State>(circuits.size)
+        for ((route, circuit) in circuits) states[route] = circuit.state()
+        return states
+    }
+
+    /**
+     * Close all the circuits and forget the past calls, for instance when the network has changed
+     */
+    fun reset() {
+        circuits.clear()
+    }
+
+    internal fun circuitOf(route: String): Circuit {
+        val circuit = circuits[route]
+        if (circuit != null) return circuit
+        val newCircuit = Circuit(route)
+        return circuits.putIfAbsent(route, newCircuit) ?: newCircuit
+    }
+
+    internal inner class Circuit(private val route: String) {
+        private val outcomes = BooleanArray(Math.max(1, policy.windowSize))
+        private var index = 0
+        private var calls = 0
+        private var failures = 0
+        private var state = State.CLOSED
+        private var openedAt = 0L
+        private var probeInFlight = false
+
+        @Synchronized
+        fun state(): State = state
+
+        /**
+         * Let the call through or reject it
+         * @throws CircuitOpenException if the circuit is open, or half-open with its probe call in flight
+         */
+        @Throws(CircuitOpenException::class)
+        fun acquire() {
+            if (!policy.enabled) return
+            val changed = synchronized(this) {
+                when (state) {
+                    State.CLOSED -> false
+                    State.HALF_OPEN -> {
+                        if (probeInFlight) throw CircuitOpenException(route, 0)
+                        probeInFlight = true
+                        false
+                    }
+                    State.OPEN -> {
+                        val retryIn = openedAt + policy.openDuration - clock()
+                        if (retryIn > 0) throw CircuitOpenException(route, retryIn)
+                        state = State.HALF_OPEN
+                        probeInFlight = true
+                        true
+                    }
+                }
+            }
+            if (changed) listener?.onStateChanged(route, State.HALF_OPEN)
+        }
+
+        /**
+         * Record the outcome of a call let through
+         */
+        fun onResult(success: Boolean) {
+            if (!policy.enabled) return
+            val newState = synchronized(this) {
+                if (state == State.HALF_OPEN) {
+                    probeInFlight = false
+                    if (success) close() else open()
+                } else {
+                    record(success)
+                    if (state == State.CLOSED && calls >= policy.minimumCalls && failures >= policy.failureRateThreshold * calls) open() else null
+                }
+            }
+            newState?.let { listener?.onStateChanged(route, it) }
+        }
+
+        /**
+         * Forget a call let through without outcome, like a canceled call
+         */
+        @Synchronized
+        fun release() {
+            probeInFlight = false
+        }
+
+        private fun record(success: Boolean) {
+            if (calls == outcomes.size) {
+                if (!outcomes[index]) failures--
+            } else {
+                calls++
+            }
+            outcomes[index] = success
+            if (!success) failures++
+            index = (index + 1) % outcomes.size
+        }
+
+        private fun open(): State {
+            state = State.OPEN
+            openedAt = clock()
+            return state
+        }
+
+        private fun close(): State {
+            state = State.CLOSED
+            index = 0
+            calls = 0
+            failures = 0
+            return state
+        }
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.xee.sdk.core.common.breaker
+
+/**
+ * Listener to observe the state changes of the circuits, for instance to display a degraded mode
+ * @author Julien Cholin
+ * @since 4.2.0
+ */
+interface CircuitBreakerListener {
+    /**
+     * Fired when the circuit of a route changes of state
+     * @param route the route template
+     * @param state the new [CircuitBreaker.State]
+     */
+    fun onStateChanged(route: String, state: CircuitBreaker.State)
+}
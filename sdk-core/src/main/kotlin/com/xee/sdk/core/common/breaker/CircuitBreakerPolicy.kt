@@ -0,0 +1,50 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.xee.sdk.core.common.breaker
+
+/**
+ * CircuitBreakerPolicy configures when the [CircuitBreaker] of a route opens
+ * @param windowSize the number of last calls of the route considered
+ * @param minimumCalls the minimum number of calls in the window before the failure rate is considered
+ * @param failureRateThreshold the rate of failed calls, between 0 and 1, opening the circuit
+ * @param slowCallDuration the time in ms above which a call is counted as failed, 0 to ignore the latency
+ * @param openDuration the time in ms the circuit stays open before letting a probe call through
+ * @param enabled false to never open the circuits
+ * @author Julien Cholin
+ * @since 4.2.0
+ */
+data class CircuitBreakerPolicy @JvmOverloads constructor(val windowSize: Int = WINDOW_SIZE,
+                                                          val minimumCalls: Int = MINIMUM_CALLS,
+                                                          val failureRateThreshold: Double = FAILURE_RATE_THRESHOLD,
+                                                          val slowCallDuration: Long = SLOW_CALL_DURATION,
+                                                          val openDuration: Long = OPEN_DURATION,
+                                                          val enabled: Boolean = true) {
+
+    companion object {
+        const val WINDOW_SIZE: Int = 20
+        const val MINIMUM_CALLS: Int = 10
+        const val FAILURE_RATE_THRESHOLD: Double = 0.5
+        const val SLOW_CALL_DURATION: Long = 10 * 1000
+        const val OPEN_DURATION: Long = 30 * 1000
+
+        /**
+         * Policy which never opens the circuits
+         */
+        @JvmField
+        val NONE = CircuitBreakerPolicy(enabled = false)
+    }
+}
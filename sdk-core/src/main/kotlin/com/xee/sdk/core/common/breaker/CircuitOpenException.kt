@@ -0,0 +1,30 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.xee.sdk.core.common.breaker
+
+import java.io.IOException
+
+/**
+ * Error of the calls rejected without being sent because the circuit of their route is open.
+ * It is an [IOException] so OkHttp reports it as a failed call
+ * @param route the route template of the rejected call
+ * @param retryIn the time in ms before the circuit lets a probe call through
+ * @author Julien Cholin
+ * @since 4.2.0
+ */
+class CircuitOpenException(val route: String, val retryIn: Long) :
+        IOException("The API is failing on $route, the calls are rejected for ${retryIn}ms")
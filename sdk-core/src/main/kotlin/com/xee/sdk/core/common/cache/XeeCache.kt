@@ -0,0 +1,162 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.xee.sdk.core.common.cache
+
+import android.util.LruCache
+import com.xee.sdk.core.common.HttpHeaders
+import com.xee.sdk.core.common.XeeEnv
+import okhttp3.Cache
+import okhttp3.Headers
+import okhttp3.Interceptor
+import okhttp3.MediaType
+import okhttp3.OkHttpClient
+import okhttp3.Protocol
+import okhttp3.Request
+import okhttp3.Response
+import okhttp3.ResponseBody
+import java.io.File
+import java.io.IOException
+import java.util.concurrent.TimeUnit
+
+/**
+ * XeeCache caches the responses of the slowly changing resources, the endpoint methods marked with [HttpHeaders.CACHEABLE].
+ * The responses are kept in memory and on disk during [XeeEnv.cacheMaxAge], or the number of seconds given by the header
+ * like "X-Xee-Cache: 15", then revalidated with conditional requests
+ * (If-None-Match / If-Modified-Since) by the OkHttp disk cache. Only the successful responses are cached.
+ * The cache is purged when the user is disconnected, and by XeeAuth when a user logs in
+ * @author Julien Cholin
+ * @since 4.2.0
+ */
+class XeeCache internal constructor(xeeEnv: XeeEnv) {
+
+    private val maxAge = xeeEnv.cacheMaxAge
+    private val diskCache = Cache(File(xeeEnv.context.cacheDir, DIRECTORY), xeeEnv.cacheSize)
+    private val memoryCache = object : LruCache<String, Entry>(Math.max(1, xeeEnv.memoryCacheSize)) {
+        override fun sizeOf(key: String, value: Entry) = value.body.size
+    }
+
+    init {
+        // The responses belong to the authenticated user, so they must not survive a disconnection
+        xeeEnv.tokenStorage?.addOnTokenChangedListener { token, _ ->
+            if (token == null) evictAll()
+        }
+    }
+
+    /**
+     * Remove all the cached responses, in memory and on disk
+     */
+    fun evictAll() {
+        memoryCache.evictAll()
+        try {
+            diskCache.evictAll()
+        } catch (e: IOException) {
+            // The disk cache has been closed or deleted, nothing left to evict
+        }
+    }
+
+    internal fun install(builder: OkHttpClient.Builder): OkHttpClient.Builder = builder
+            .cache(diskCache)
+            .addInterceptor(MemoryCacheInterceptor())
+            .addNetworkInterceptor(MaxAgeInterceptor())
+
+    /**
+     * Serves the fresh responses from memory, the other requests are sent as they are
+     */
+    private inner class MemoryCacheInterceptor : Interceptor {
+        override fun intercept(chain: Interceptor.Chain): Response {
+            val request = chain.request()
+            val key = request.url().toString()
+
+            if (request.method() != "GET") {
+                // The modifications invalidate the cached resource, as the disk cache does
+                memoryCache.remove(key)
+                return chain.proceed(request)
+            }
+
+            val cacheHeader = request.header(HttpHeaders.HEADER_XEE_CACHE) ?: return chain.proceed(request)
+            val tag = CacheTag(cacheHeader.toLongOrNull()?.let { TimeUnit.SECONDS.toMillis(it) } ?: maxAge)
+
+            val cachedEntry = memoryCache.get(key)
+            if (cachedEntry != null && System.currentTimeMillis() - cachedEntry.receivedAt < tag.maxAge) {
+                return cachedEntry.toResponse(request)
+            }
+
+            val response = chain.proceed(request.newBuilder()
+                    .removeHeader(HttpHeaders.HEADER_XEE_CACHE)
+                    .tag(tag)
+                    .build())
+            if (response.code() != 200) return response
+
+            val body = response.body() ?: return response
+            val contentType = body.contentType()
+            val bytes = body.bytes()
+            memoryCache.put(key, Entry(response.code(), response.message(), response.headers(), contentType, bytes, response.receivedResponseAtMillis()))
+            return response.newBuilder().body(ResponseBody.create(contentType, bytes)).build()
+        }
+    }
+
+    /**
+     * Replaces the cache headers of the cacheable responses, so the disk cache keeps them during their max age
+     * and revalidates them afterwards with their ETag or Last-Modified. The other responses are kept out of the disk cache
+     * by their own headers, the requests are never modified
+     */
+    private inner class MaxAgeInterceptor : Interceptor {
+        override fun intercept(chain: Interceptor.Chain): Response {
+            val response = chain.proceed(chain.request())
+            val tag = chain.request().tag() as? CacheTag
+                    ?: return response.newBuilder().removeHeader(HEADER_PRAGMA).header(HEADER_CACHE_CONTROL, NO_STORE).build()
+            // The errors keep their own cache headers, a 404 must not be served during the whole max age
+            if (!response.isSuccessful) return response
+
+            return response.newBuilder()
+                    .removeHeader(HEADER_PRAGMA)
+                    .header(HEADER_CACHE_CONTROL, "private, max-age=${TimeUnit.MILLISECONDS.toSeconds(tag.maxAge)}")
+                    .build()
+        }
+    }
+
+    /**
+     * Tag of the cacheable requests sent to the network, holding their max age in ms
+     */
+    private class CacheTag(val maxAge: Long)
+
+    private class Entry(val code: Int,
+                        val message: String,
+                        val headers: Headers,
+                        val contentType: MediaType?,
+                        val body: ByteArray,
+                        val receivedAt: Long) {
+
+        fun toResponse(request: Request): Response = Response.Builder()
+                .request(request)
+                .protocol(Protocol.HTTP_1_1)
+                .code(code)
+                .message(message)
+                .headers(headers)
+                .body(ResponseBody.create(contentType, body))
+                .sentRequestAtMillis(receivedAt)
+                .receivedResponseAtMillis(receivedAt)
+                .build()
+    }
+
+    companion object {
+        const val DIRECTORY = "xee-http-cache"
+        private const val HEADER_PRAGMA = "Pragma"
+        private const val HEADER_CACHE_CONTROL = "Cache-Control"
+        private const val NO_STORE = "no-store"
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xee.sdk.core.common.geo
+
+import java.util.*
+
+/**
+ * Polyline is the geometry of a trip, stored in two primitive arrays of latitudes and longitudes in degrees
+ * instead of one location object per point. It can be simplified to draw it at a given zoom level,
+ * and encoded with the Google encoded polyline algorithm to store or send it compactly
+ * @author Julien Cholin
+ * @since 4.2.0
+ */
+class Polyline(private val latitudes: DoubleArray, private val longitudes: DoubleArray) {
+
+    init {
+        if (latitudes.size != longitudes.size) throw IllegalArgumentException("${latitudes.size} latitudes for ${longitudes.size} longitudes")
+    }
+
+    /**
+     * Number of points of the polyline
+     */
+    val size: Int
+        get() = latitudes.size
+
+    /**
+     * @return the latitude in degrees of the point at the given index
+     */
+    fun latitudeAt(index: Int): Double = latitudes[index]
+
+    /**
+     * @return the longitude in degrees of the point at the given index
+     */
+    fun longitudeAt(index: Int): Double = longitudes[index]
+
+    /**
+     * @return the points as an array of latitude and longitude pairs: [lat0, lon0, lat1, lon1, ...]
+     */
+    fun toArray(): DoubleArray {
+        val points = DoubleArray(2 * size)
+        for (i in 0 until size) {
+            points[2 * i] = latitudes[i]
+            points[2 * i + 1] = longitudes[i]
+        }
+        return points
+    }
+
+    /**
+     * Returns a simplified copy of the polyline, the first and the last points are always kept
+     * @param tolerance the tolerance in meters, see [toleranceAtZoom]. 0 keeps all the points
+     * @param simplification the [Simplification] algorithm
+     */
+    @JvmOverloads
+    fun simplify(tolerance: Double, simplification: Simplification = Simplification.DOUGLAS_PEUCKER): Polyline {
+        if (tolerance <= 0 || size <= 2) return this
+
+        // The points are projected on a plane tangent at the middle latitude, which is accurate enough at the scale of a trip
+        var latitudeSum = 0.0
+        for (latitude in latitudes) latitudeSum += latitude
+        val longitudeScale = METERS_PER_DEGREE * Math.cos(Math.toRadians(latitudeSum / size))
+        val xs = DoubleArray(size) { longitudes[it] * longitudeScale }
+        val ys = DoubleArray(size) { latitudes[it] * METERS_PER_DEGREE }
+
+        val kept = when (simplification) {
+            Simplification.DOUGLAS_PEUCKER -> PolylineSimplifier.douglasPeucker(xs, ys, tolerance)
+            Simplification.VISVALINGAM -> PolylineSimplifier.visvalingam(xs, ys, tolerance)
+        }
+
+        var keptSize = 0
+        for (isKept in kept) if (isKept) keptSize++
+        val keptLatitudes = DoubleArray(keptSize)
+        val keptLongitudes = DoubleArray(keptSize)
+        var j = 0
+        for (i in 0 until size) {
+            if (kept[i]) {
+                keptLatitudes[j] = latitudes[i]
+                keptLongitudes[j] = longitudes[i]
+                j++
+            }
+        }
+        return Polyline(keptLatitudes, keptLongitudes)
+    }
+
+    /**
+     * Encode the polyline with the Google encoded polyline algorithm, understood by the Google Maps APIs
+     * @param precision the number of decimals kept, 5 for the Google Maps APIs
+     */
+    @JvmOverloads
+    fun encode(precision: Int = DEFAULT_PRECISION): String {
+        val factor = Math.pow(10.0, precision.toDouble())
+        val builder = StringBuilder(size * 8)
+        var previousLatitude = 0L
+        var previousLongitude = 0L
+        for (i in 0 until size) {
+            val latitude = Math.round(latitudes[i] * factor)
+            val longitude = Math.round(longitudes[i] * factor)
+            encodeValue(latitude - previousLatitude, builder)
+            encodeValue(longitude - previousLongitude, builder)
+            previousLatitude = latitude
+            previousLongitude = longitude
+        }
+        return builder.toString()
+    }
+
+    override fun equals(other: Any?): Boolean = other is Polyline
+            && Arrays.equals(latitudes, other.latitudes)
+            && Arrays.equals(longitudes, other.longitudes)
+
+    override fun hashCode(): Int = 31 * Arrays.hashCode(latitudes) + Arrays.hashCode(longitudes)
+
+    companion object {
+        const val DEFAULT_PRECISION = 5
+        private const val METERS_PER_DEGREE = 111319.49
+        private const val METERS_PER_PIXEL_AT_ZOOM_0 = 156543.03392
+
+        /**
+         * Returns the tolerance in meters matching a number of pixels on a Web Mercator map, like Google Maps,
+         * so the simplified polyline looks the same as the complete one at this zoom level
+         * @param zoom the zoom level of the map
+         * @param latitude the latitude in degrees where the polyline is drawn
+         * @param pixels the tolerated number of pixels
+         */
+        @JvmStatic
+        @JvmOverloads
+        fun toleranceAtZoom(zoom: Double, latitude: Double, pixels: Double = 1.0): Double =
+                pixels * METERS_PER_PIXEL_AT_ZOOM_0 * Math.cos(Math.toRadians(latitude)) / Math.pow(2.0, zoom)
+
+        /**
+         * Decode a polyline encoded with the Google encoded polyline algorithm
+         * @param encoded the encoded polyline
+         * @param precision the number of decimals of the encoded points
+         * @throws IllegalArgumentException if the polyline is truncated
+         */
+        @JvmStatic
+        @JvmOverloads
+        fun decode(encoded: String, precision: Int = DEFAULT_PRECISION): Polyline {
+            val factor = Math.pow(10.0, precision.toDouble())
+            var latitudes = DoubleArray(Math.max(1, encoded.length / 4))
+            var longitudes = DoubleArray(latitudes.size)
+            var size = 0
+            var latitude = 0L
+            var longitude = 0L
+            val position = intArrayOf(0)
+            while (position[0] < encoded.length) {
+                latitude += decodeValue(encoded, position)
+                longitude += decodeValue(encoded, position)
+                if (size == latitudes.size) {
+                    latitudes = Arrays.copyOf(latitudes, 2 * size)
+                    longitudes = Arrays.copyOf(longitudes, 2 * size)
+                }
+                latitudes[size] = latitude / factor
+                longitudes[size] = longitude / factor
+                size++
+            }
+            return Polyline(Arrays.copyOf(latitudes, size), Arrays.copyOf(longitudes, size))
+        }
+
+        private fun encodeValue(value: Long, builder: StringBuilder) {
+            var remaining = if (value < 0) (value shl 1).inv() else value shl 1
+            while (remaining >= 0x20) {
+                builder.append(((0x20 or (remaining and 0x1f).toInt()) + 63).toChar())
+                remaining = remaining shr 5
+            }
+            builder.append((remaining + 63).toChar())
+        }
+
+        private fun decodeValue(encoded: String, position: IntArray): Long {
+            var result = 0L
+            var shift = 0
+            while (true) {
+                if (position[0] >= encoded.length) throw IllegalArgumentException("Truncated polyline")
+                val chunk = encoded[position[0]++].toInt() - 63
+                result = result or ((chunk and 0x1f).toLong() shl shift)
+                shift += 5
+                if (chunk < 0x20) break
+            }
+            return if ((result and 1L) != 0L) (result shr 1).inv() else result shr 1
+        }
+    }
+}
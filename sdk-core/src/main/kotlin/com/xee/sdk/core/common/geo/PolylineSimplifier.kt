@@ -0,0 +1,149 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xee.sdk.core.common.geo
+
+import java.util.*
+
+/**
+ * Implementations of the [Simplification]s, working on points projected in meters
+ * @author Julien Cholin
+ * @since 4.2.0
+ */
+internal object PolylineSimplifier {
+
+    /**
+     * @param xs the abscissas of the points in meters
+     * @param ys the ordinates of the points in meters
+     * @param tolerance the maximum distance in meters between a removed point and the simplified line
+     * @return for each point, true if it is kept
+     */
+    fun douglasPeucker(xs: DoubleArray, ys: DoubleArray, tolerance: Double): BooleanArray {
+        val size = xs.size
+        val kept = BooleanArray(size)
+        if (size <= 2) {
+            Arrays.fill(kept, true)
+            return kept
+        }
+        kept[0] = true
+        kept[size - 1] = true
+
+        // The segments to split are stacked instead of recursing, a long trip would overflow the stack
+        val squaredTolerance = tolerance * tolerance
+        val stack = IntArray(2 * size)
+        var top = 0
+        stack[top++] = 0
+        stack[top++] = size - 1
+        while (top > 0) {
+            val last = stack[--top]
+            val first = stack[--top]
+            var farthest = -1
+            var farthestDistance = squaredTolerance
+            for (i in first + 1 until last) {
+                val distance = squaredSegmentDistance(xs[i], ys[i], xs[first], ys[first], xs[last], ys[last])
+                if (distance > farthestDistance) {
+                    farthest = i
+                    farthestDistance = distance
+                }
+            }
+            if (farthest != -1) {
+                kept[farthest] = true
+                stack[top++] = first
+                stack[top++] = farthest
+                stack[top++] = farthest
+                stack[top++] = last
+            }
+        }
+        return kept
+    }
+
+    /**
+     * @param xs the abscissas of the points in meters
+     * @param ys the ordinates of the points in meters
+     * @param tolerance the removed points form triangles smaller than the tolerance squared, in meters
+     * @return for each point, true if it is kept
+     */
+    fun visvalingam(xs: DoubleArray, ys: DoubleArray, tolerance: Double): BooleanArray {
+        val size = xs.size
+        val kept = BooleanArray(size)
+        Arrays.fill(kept, true)
+        if (size <= 2) return kept
+
+        val previous = IntArray(size) { it - 1 }
+        val next = IntArray(size) { it + 1 }
+        val areas = DoubleArray(size)
+        val queue = PriorityQueue<Triangle>(size)
+        for (i in 1 until size - 1) {
+            areas[i] = triangleArea(xs, ys, i - 1, i, i + 1)
+            queue.add(Triangle(i, areas[i]))
+        }
+
+        val threshold = tolerance * tolerance
+        var removedArea = 0.0
+        while (true) {
+            val triangle = queue.poll() ?: break
+            // The area of the point has changed since this triangle has been queued
+            if (!kept[triangle.index] || triangle.area != areas[triangle.index]) continue
+            if (triangle.area >= threshold) break
+
+            // A point can't be removed before a point already removed with a larger area
+            removedArea = Math.max(removedArea, triangle.area)
+            val index = triangle.index
+            kept[index] = false
+            val before = previous[index]
+            val after = next[index]
+            next[before] = after
+            previous[after] = before
+
+            if (before > 0) {
+                areas[before] = Math.max(removedArea, triangleArea(xs, ys, previous[before], before, after))
+                queue.add(Triangle(before, areas[before]))
+            }
+            if (after < size - 1) {
+                areas[after] = Math.max(removedArea, triangleArea(xs, ys, before, after, next[after]))
+                queue.add(Triangle(after, areas[after]))
+            }
+        }
+        return kept
+    }
+
+    private fun squaredSegmentDistance(x: Double, y: Double, x1: Double, y1: Double, x2: Double, y2: Double): Double {
+        var projectedX = x1
+        var projectedY = y1
+        val dx = x2 - x1
+        val dy = y2 - y1
+        val squaredLength = dx * dx + dy * dy
+        if (squaredLength > 0) {
+            val t = ((x - x1) * dx + (y - y1) * dy) / squaredLength
+            if (t >= 1) {
+                projectedX = x2
+                projectedY = y2
+            } else if (t > 0) {
+                projectedX += dx * t
+                projectedY += dy * t
+            }
+        }
+        val distanceX = x - projectedX
+        val distanceY = y - projectedY
+        return distanceX * distanceX + distanceY * distanceY
+    }
+
+    private fun triangleArea(xs: DoubleArray, ys: DoubleArray, a: Int, b: Int, c: Int): Double =
+            Math.abs((xs[b] - xs[a]) * (ys[c] - ys[a]) - (xs[c] - xs[a]) * (ys[b] - ys[a])) / 2
+
+    private class Triangle(val index: Int, val area: Double) : Comparable<Triangle> {
+        override fun compareTo(other: Triangle): Int = java.lang.Double.compare(area, other.area)
+    }
+}
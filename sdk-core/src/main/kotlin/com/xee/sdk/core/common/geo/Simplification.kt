@@ -0,0 +1,34 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xee.sdk.core.common.geo
+
+/**
+ * Algorithms used to simplify a [Polyline]
+ * @author Julien Cholin
+ * @since 4.2.0
+ */
+enum class Simplification {
+    /**
+     * Keeps the points farther than the tolerance from the simplified line, it preserves the sharp turns
+     */
+    DOUGLAS_PEUCKER,
+
+    /**
+     * Removes the points forming the smallest triangles with their neighbours until they are larger than the tolerance squared,
+     * it gives smoother shapes
+     */
+    VISVALINGAM
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.xee.sdk.core.common.governor
+
+import com.xee.sdk.core.common.XeeHttpClient
+import com.xee.sdk.core.common.endpointRoute
+import com.xee.sdk.core.common.metrics.XeeMetrics
+import io.reactivex.Observable
+import retrofit2.Call
+import retrofit2.CallAdapter
+import retrofit2.Retrofit
+import retrofit2.adapter.rxjava2.RxJava2CallAdapterFactory
+import java.lang.reflect.Type
+
+/**
+ * GovernedCallAdapterFactory wraps the [Observable] call adapters of another [CallAdapter.Factory]
+ * so the requests are started by the [RequestGovernor] of their family of routes.
+ * The [RateLimit]s are keyed by route prefix, like "vehicles/" for all the vehicle routes, the longest prefix matching wins.
+ * The empty prefix caps all the routes of the host: a route of a more specific family must be allowed by both governors,
+ * its family first so a request waiting for its family doesn't hold a slot of the host. The governors are shared by all the modules through
+ * [XeeHttpClient], since they all target the same host. The delegate must be asynchronous, like
+ * [retrofit2.adapter.rxjava2.RxJava2CallAdapterFactory.createAsync], so the queued requests don't hold any thread
+ * @author Julien Cholin
+ * @since 4.2.0
+ */
+class GovernedCallAdapterFactory @JvmOverloads constructor(private val delegate: CallAdapter.Factory,
+                                                           private val rateLimits: Map<String, RateLimit>,
+                                                           private val metrics: XeeMetrics? = null) : CallAdapter.Factory() {
+
+    override fun get(returnType: Type, annotations: Array<Annotation>, retrofit: Retrofit): CallAdapter<*, *>? {
+        val adapter = delegate.get(returnType, annotations, retrofit) ?: return null
+        if (getRawType(returnType) != Observable::class.java) return adapter
+
+        val route = annotations.endpointRoute() ?: return adapter
+        val family = rateLimits.keys.filter { route.startsWith(it) }.maxBy { it.length } ?: return adapter
+        val governors = ArrayList<RequestGovernor>(2)
+        governors.add(XeeHttpClient.governorOf(family, rateLimits[family]!!, metrics))
+        val hostLimit = rateLimits[HOST]
+        if (family != HOST && hostLimit != null) governors.add(XeeHttpClient.governorOf(HOST, hostLimit, metrics))
+
+        @Suppress("UNCHECKED_CAST")
+        return GovernedCallAdapter(adapter as CallAdapter<Any, Any>, route, governors)
+    }
+
+    companion object {
+        /**
+         * The prefix of the [RateLimit] of all the routes of the host
+         */
+        const val HOST = ""
+
+        /**
+         * Returns the RxJava2 call adapter factory of the modules: synchronous as before when there isn't any [RateLimit],
+         * asynchronous and governed otherwise
+         * @param rateLimits the [RateLimit]s by route prefix
+         * @param metrics the [XeeMetrics] receiving the queue measures
+         */
+        @JvmStatic
+        fun create(rateLimits: Map<String, RateLimit>, metrics: XeeMetrics?): CallAdapter.Factory =
+                if (rateLimits.isEmpty()) RxJava2CallAdapterFactory.create()
+                else GovernedCallAdapterFactory(RxJava2CallAdapterFactory.createAsync(), HashMap(rateLimits), metrics)
+    }
+
+    private class GovernedCallAdapter(private val adapter: CallAdapter<Any, Any>,
+                                      private val route: String,
+                                      private val governors: List<RequestGovernor>) : CallAdapter<Any, Any> {
+
+        override fun responseType(): Type = adapter.responseType()
+
+        override fun adapt(call: Call<Any>): Any {
+            @Suppress("UNCHECKED_CAST")
+            var governed = adapter.adapt(call) as Observable<Any>
+            // The first governor is the outermost one, so it is acquired first
+            for (governor in governors.asReversed()) governed = governor.govern(route, governed)
+            return governed
+        }
+    }
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.xee.sdk.core.common.governor
+
+/**
+ * RateLimit configures the [RequestGovernor] of a family of routes
+ * @param permitsPerSecond the number of requests started per second on average, 0 for no rate limit
+ * @param burst the number of requests which can be started at once after a quiet period
+ * @param maxInFlight the maximum number of requests running at the same time, 0 for no limit
+ * @author Julien Cholin
+ * @since 4.2.0
+ */
+data class RateLimit @JvmOverloads constructor(val permitsPerSecond: Double = 0.0,
+                                               val burst: Int = 1,
+                                               val maxInFlight: Int = 0)
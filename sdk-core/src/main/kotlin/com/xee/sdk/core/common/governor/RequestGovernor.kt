@@ -0,0 +1,151 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.xee.sdk.core.common.governor
+
+import com.xee.sdk.core.common.metrics.XeeMetrics
+import io.reactivex.Observable
+import io.reactivex.ObservableEmitter
+import io.reactivex.Observer
+import io.reactivex.Scheduler
+import io.reactivex.disposables.Disposable
+import io.reactivex.schedulers.Schedulers
+import java.util.*
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+
+/**
+ * RequestGovernor starts the requests of a family of routes following a [RateLimit]: a token bucket limits the rate,
+ * and a counter limits the requests in flight. The excess requests wait in a queue, not in a thread,
+ * and are started when a token is available and a request in flight has ended. The tokens are refilled
+ * with the clock of the [scheduler]
+ * @author Julien Cholin
+ * @since 4.2.0
+ */
+class RequestGovernor @JvmOverloads constructor(private val rateLimit: RateLimit,
+                                                private val metrics: XeeMetrics? = null,
+                                                private val scheduler: Scheduler = Schedulers.computation()) {
+
+    private val lock = Any()
+    private val pending = ArrayDeque<Ticket<*>>()
+    private var inFlight = 0
+    private var tokens = Math.max(1, rateLimit.burst).toDouble()
+    private var lastRefill = scheduler.now(TimeUnit.NANOSECONDS)
+    private var drainScheduled = false
+
+    /**
+     * Returns an [Observable] subscribing to the source once the governor allows it
+     * @param route the route of the request, to report the queue in the metrics
+     * @param source the request, which must not block the subscribing thread
+     */
+    fun <T> govern(route: String, source: Observable<T>): Observable<T> = Observable.create<T> { emitter ->
+        val ticket = Ticket(route, source, emitter)
+        // Until the request is started, disposing it only removes it from the queue
+        emitter.setCancellable { synchronized(lock) { pending.remove(ticket) } }
+        synchronized(lock) { pending.add(ticket) }
+        drain()
+    }
+
+    /**
+     * @return the number of requests waiting to be started
+     */
+    fun queueDepth(): Int = synchronized(lock) { pending.size }
+
+    private fun drain() {
+        val ready = ArrayList<Ticket<*>>()
+        val depth: Int
+        synchronized(lock) {
+            refill()
+            while (pending.isNotEmpty() && hasRoomInFlight() && tokens >= 1) {
+                tokens -= 1
+                inFlight++
+                ready.add(pending.poll())
+            }
+            depth = pending.size
+
+            // Only the rate blocks the queue, so a drain is scheduled when the next token will be available
+            if (depth > 0 && hasRoomInFlight() && !drainScheduled) {
+                drainScheduled = true
+                val delay = ((1 - tokens) / rateLimit.permitsPerSecond * NANOS_PER_SECOND).toLong()
+                scheduler.scheduleDirect({
+                    synchronized(lock) { drainScheduled = false }
+                    drain()
+                }, Math.max(0, delay), TimeUnit.NANOSECONDS)
+            }
+        }
+        for (ticket in ready) ticket.start(depth)
+    }
+
+    private fun release() {
+        synchronized(lock) { inFlight-- }
+        drain()
+    }
+
+    private fun hasRoomInFlight() = rateLimit.maxInFlight <= 0 || inFlight < rateLimit.maxInFlight
+
+    private fun refill() {
+        if (rateLimit.permitsPerSecond <= 0) {
+            tokens = Double.MAX_VALUE
+            return
+        }
+        val now = scheduler.now(TimeUnit.NANOSECONDS)
+        val burst = Math.max(1, rateLimit.burst).toDouble()
+        tokens = Math.min(burst, tokens + (now - lastRefill) * rateLimit.permitsPerSecond / NANOS_PER_SECOND)
+        lastRefill = now
+    }
+
+    private inner class Ticket<T>(private val route: String,
+                                  private val source: Observable<T>,
+                                  private val emitter: ObservableEmitter<T>) {
+
+        private val enqueuedAt = System.nanoTime()
+        private val released = AtomicBoolean()
+
+        fun start(depth: Int) {
+            metrics?.onQueue(route, depth, (System.nanoTime() - enqueuedAt) / 1000)
+            if (emitter.isDisposed) {
+                releaseOnce()
+                return
+            }
+
+            source.doFinally { releaseOnce() }.subscribe(object : Observer<T> {
+                override fun onSubscribe(d: Disposable) {
+                    emitter.setDisposable(d)
+                }
+
+                override fun onNext(t: T) {
+                    emitter.onNext(t)
+                }
+
+                override fun onError(e: Throwable) {
+                    emitter.onError(e)
+                }
+
+                override fun onComplete() {
+                    emitter.onComplete()
+                }
+            })
+        }
+
+        private fun releaseOnce() {
+            if (released.compareAndSet(false, true)) release()
+        }
+    }
+
+    companion object {
+        private const val NANOS_PER_SECOND = 1000000000.0
+    }
+}
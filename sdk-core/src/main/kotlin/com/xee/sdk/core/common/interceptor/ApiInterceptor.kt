@@ -16,21 +16,12 @@
 
 package com.xee.sdk.core.common.interceptor
 
-import com.xee.sdk.core.auth.XeeAuth
-import com.xee.sdk.core.auth.buildBasicAuthenticationHeader
-import com.xee.sdk.core.auth.endpoint.AuthEndpoint
+import com.google.gson.JsonParseException
 import com.xee.sdk.core.common.*
 import com.xee.sdk.core.common.model.parseResponseError
 import okhttp3.Interceptor
-import okhttp3.OkHttpClient
 import okhttp3.Response
-import okhttp3.ResponseBody
-import retrofit2.Retrofit
-import retrofit2.adapter.rxjava2.RxJava2CallAdapterFactory
-import retrofit2.converter.gson.GsonConverterFactory
 import java.io.IOException
-import java.util.*
-import java.util.concurrent.TimeUnit
 
 /**
  * This interceptor refresh a token and relaunch the same request if the error is a token outdated error
@@ -39,55 +30,42 @@ import java.util.concurrent.TimeUnit
  */
 class ApiInterceptor constructor(private val xeeEnv: XeeEnv, private val storage: TokenStorage) : Interceptor {
 
-    private lateinit var authService: AuthEndpoint
+    private val tokenRefresher: TokenRefresher = TokenRefresher[xeeEnv, storage]
 
     @Throws(IOException::class)
     override fun intercept(chain: Interceptor.Chain): Response {
         var originalRequest = chain.request()
         val originalResponse = chain.proceed(originalRequest)
-        val rawJson = originalResponse.body()!!.string()
-        if (!originalResponse.isSuccessful) {
-            val error = rawJson.parseResponseError()
-            if ((originalResponse.code() == HttpCodes.UNAUTHORIZED_CODE) && (ApiMessages.ERROR_TOKEN_EXPIRED == error?.error || ApiMessages.ERROR_DESCRIPTION_TOKEN_EXPIRED == error?.errorDescription)) {
-                val currentToken = storage.get()!!
-                val refreshTokenResponse = authService.refreshTokenResponse(AuthEndpoint.GrantTypes.REFRESH_TOKEN, currentToken.refreshToken).blockingFirst()
-                if (refreshTokenResponse.isSuccessful) {
-                    storage.store(refreshTokenResponse.body()!!)
-                    val requestBuilder = originalRequest.newBuilder().header(HttpHeaders.HEADER_AUTHORIZATION, HttpHeaders.HEADER_BEARER + refreshTokenResponse.body()!!.accessToken)
-                    originalRequest = requestBuilder.build()
-                    return chain.proceed(originalRequest)
-                }
-            }
-        }
 
-        return originalResponse.newBuilder().body(ResponseBody.create(originalResponse.body()!!.contentType(), rawJson)).build()
-    }
-
-    init {
-        build()
-    }
+        // Successful bodies are streamed as is to the converter, only the error payloads are read here
+        if (originalResponse.isSuccessful || originalResponse.code() != HttpCodes.UNAUTHORIZED_CODE) return originalResponse
 
-    private fun build() {
-        val apiClientBuilder = OkHttpClient.Builder()
-                .addInterceptor { chain ->
-                    val requestBuilder = chain.request().newBuilder()
-                            .header(HttpHeaders.HEADER_AUTHORIZATION, buildBasicAuthenticationHeader(xeeEnv))
-                    chain.proceed(requestBuilder.build())
-                }
-                .connectTimeout(xeeEnv.connectTimeout, TimeUnit.MILLISECONDS)
-                .readTimeout(xeeEnv.readTimeout, TimeUnit.MILLISECONDS)
+        // Peek the body so it is still readable by the caller if the request isn't relaunched
+        val error = try {
+            originalResponse.peekBody(MAX_ERROR_BODY_SIZE).string().parseResponseError()
+        } catch (e: JsonParseException) {
+            null
+        }
 
-        // If the SDK is in debug mode, we log all the requests and the responses sent
-        if (XeeAuth.enableOAuthLog) apiClientBuilder.addInterceptor(LogRequestInterceptor())
+        if (ApiMessages.ERROR_TOKEN_EXPIRED == error?.error || ApiMessages.ERROR_DESCRIPTION_TOKEN_EXPIRED == error?.errorDescription) {
+            // Concurrent requests rejected with the same token share a single refresh
+            val staleAccessToken = originalRequest.header(HttpHeaders.HEADER_AUTHORIZATION)?.removePrefix(HttpHeaders.HEADER_BEARER)
+            val refreshedToken = tokenRefresher.refresh(staleAccessToken)
+            if (refreshedToken != null) {
+                originalResponse.close()
+                val requestBuilder = originalRequest.newBuilder().header(HttpHeaders.HEADER_AUTHORIZATION, HttpHeaders.HEADER_BEARER + refreshedToken.accessToken)
+                originalRequest = requestBuilder.build()
+                return chain.proceed(originalRequest)
+            }
+        }
 
-        // Build the retrofit interface and the API services
-        val apiRetrofit = Retrofit.Builder()
-                .baseUrl(String.format(Locale.FRANCE, XeeAuth.ROUTE_BASE, xeeEnv.environment))
-                .client(apiClientBuilder.build())
-                .addCallAdapterFactory(RxJava2CallAdapterFactory.create())
-                .addConverterFactory(GsonConverterFactory.create())
-                .build()
+        return originalResponse
+    }
 
-        authService = apiRetrofit.create<AuthEndpoint>(AuthEndpoint::class.java)
+    companion object {
+        /**
+         * Maximum number of bytes read from an error body to look for an outdated token error
+         */
+        private const val MAX_ERROR_BODY_SIZE = 64 * 1024L
     }
 }
\ No newline at end of file
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.xee.sdk.core.common.interceptor
+
+import com.xee.sdk.core.common.breaker.CircuitBreaker
+import com.xee.sdk.core.common.breaker.CircuitBreakerPolicy
+import com.xee.sdk.core.common.metrics.RouteResolver
+import okhttp3.Interceptor
+import okhttp3.Response
+import java.io.IOException
+import java.util.concurrent.TimeUnit
+
+/**
+ * This interceptor rejects the calls of the routes whose circuit is open, and reports the outcome of the other calls
+ * to the [CircuitBreaker]: a connection error, a server error or a call slower than [CircuitBreakerPolicy.slowCallDuration] is a failure
+ * @author Julien Cholin
+ * @since 4.2.0
+ */
+class CircuitBreakerInterceptor(private val circuitBreaker: CircuitBreaker, private val policy: CircuitBreakerPolicy) : Interceptor {
+
+    @Throws(IOException::class)
+    override fun intercept(chain: Interceptor.Chain): Response {
+        val request = chain.request()
+        val circuit = circuitBreaker.circuitOf(RouteResolver.resolve(request.url().encodedPath()))
+        circuit.acquire()
+
+        val start = System.nanoTime()
+        val response = try {
+            chain.proceed(request)
+        } catch (e: Throwable) {
+            // any failure, not only the IO ones, must be reported so that a half-open circuit doesn't keep its probe forever
+            if (chain.call().isCanceled) circuit.release() else circuit.onResult(false)
+            throw e
+        }
+
+        val duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+        val slow = policy.slowCallDuration > 0 && duration > policy.slowCallDuration
+        circuit.onResult(response.code() < SERVER_ERROR && !slow)
+        return response
+    }
+
+    companion object {
+        private const val SERVER_ERROR = 500
+    }
+}
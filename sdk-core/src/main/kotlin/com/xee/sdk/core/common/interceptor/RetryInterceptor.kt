@@ -0,0 +1,108 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.xee.sdk.core.common.interceptor
+
+import com.xee.sdk.core.common.HttpCodes
+import com.xee.sdk.core.common.RetryPolicy
+import okhttp3.Interceptor
+import okhttp3.Response
+import java.io.IOException
+import java.io.InterruptedIOException
+import java.text.ParseException
+import java.text.SimpleDateFormat
+import java.util.*
+import java.util.concurrent.TimeUnit
+
+/**
+ * This interceptor sends again the requests failing on a transient error, following the [RetryPolicy].
+ * The delay grows exponentially with a random jitter, unless the API asks for a delay with Retry-After
+ * @author Julien Cholin
+ * @since 4.2.0
+ */
+class RetryInterceptor(private val policy: RetryPolicy) : Interceptor {
+
+    private val random = Random()
+
+    @Throws(IOException::class)
+    override fun intercept(chain: Interceptor.Chain): Response {
+        val request = chain.request()
+        if (policy.maxAttempts <= 1 || (policy.idempotentOnly && request.method() !in IDEMPOTENT_METHODS)) {
+            return chain.proceed(request)
+        }
+
+        var attempt = 1
+        while (true) {
+            val response = try {
+                chain.proceed(request)
+            } catch (e: IOException) {
+                if (attempt >= policy.maxAttempts || chain.call().isCanceled) throw e
+                null
+            }
+
+            val delay: Long
+            if (response != null) {
+                if (response.code() !in RETRIED_CODES || attempt >= policy.maxAttempts) return response
+                val retryAfter = retryAfterOf(response)
+                // The API asks to wait longer than we accept, so the error is returned now
+                if (retryAfter != null && retryAfter > policy.maxDelay) return response
+                delay = retryAfter ?: backoffDelay(attempt)
+                response.close()
+            } else {
+                delay = backoffDelay(attempt)
+            }
+
+            try {
+                Thread.sleep(delay)
+            } catch (e: InterruptedException) {
+                Thread.currentThread().interrupt()
+                throw InterruptedIOException("Interrupted while waiting to retry")
+            }
+            attempt++
+        }
+    }
+
+    /**
+     * @return the exponential delay of the attempt, minus a random part of it
+     */
+    private fun backoffDelay(attempt: Int): Long {
+        val delay = Math.min(policy.maxDelay, policy.baseDelay shl Math.min(attempt - 1, MAX_SHIFT))
+        return (delay * (1 - policy.jitter * random.nextDouble())).toLong()
+    }
+
+    /**
+     * @return the delay in ms asked by the Retry-After header, in seconds or as an HTTP date, null if there isn't any
+     */
+    private fun retryAfterOf(response: Response): Long? {
+        val retryAfter = response.header(HEADER_RETRY_AFTER) ?: return null
+        retryAfter.trim().toLongOrNull()?.let { return TimeUnit.SECONDS.toMillis(Math.max(0, it)) }
+        return try {
+            val dateFormat = SimpleDateFormat(HTTP_DATE_FORMAT, Locale.US)
+            dateFormat.timeZone = TimeZone.getTimeZone("GMT")
+            Math.max(0, dateFormat.parse(retryAfter).time - System.currentTimeMillis())
+        } catch (e: ParseException) {
+            null
+        }
+    }
+
+    companion object {
+        private const val HEADER_RETRY_AFTER = "Retry-After"
+        private const val HTTP_DATE_FORMAT = "EEE, dd MMM yyyy HH:mm:ss zzz"
+        private const val MAX_SHIFT = 20
+        private val IDEMPOTENT_METHODS = setOf("GET", "HEAD", "PUT", "DELETE", "OPTIONS")
+        private val RETRIED_CODES = setOf(HttpCodes.BAD_GATEWAY, HttpCodes.SERVICE_UNAVAILABLE, HttpCodes.GATEWAY_TIMEOUT)
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.xee.sdk.core.common.metrics
+
+/**
+ * Measures of one call. The durations are in µs, [NONE] when the phase didn't happen,
+ * for instance [dns], [connect] and [tls] when a pooled connection is reused
+ * @author Julien Cholin
+ * @since 4.2.0
+ */
+data class CallMetrics(val route: String,
+                       val method: String,
+                       val statusCode: Int,
+                       val dns: Long,
+                       val connect: Long,
+                       val tls: Long,
+                       val timeToFirstByte: Long,
+                       val body: Long,
+                       val total: Long,
+                       val responseSize: Long,
+                       val failed: Boolean) {
+
+    companion object {
+        const val NONE: Long = -1
+        const val NO_STATUS_CODE: Int = -1
+    }
+}
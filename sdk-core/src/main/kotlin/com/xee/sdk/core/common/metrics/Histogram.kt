@@ -0,0 +1,75 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.xee.sdk.core.common.metrics
+
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicLongArray
+
+/**
+ * Lock-free histogram of positive values. The value v is counted in the bucket i such as 2^(i-1) <= v < 2^i,
+ * so recording is a few atomic increments and the percentiles have a relative error below 2
+ * @author Julien Cholin
+ * @since 4.2.0
+ */
+class Histogram {
+
+    private val buckets = AtomicLongArray(BUCKET_COUNT)
+    private val count = AtomicLong()
+    private val sum = AtomicLong()
+    private val max = AtomicLong()
+
+    /**
+     * Record a value, the negative ones are ignored
+     */
+    fun record(value: Long) {
+        if (value < 0) return
+        buckets.incrementAndGet(bucketOf(value))
+        count.incrementAndGet()
+        sum.addAndGet(value)
+
+        var currentMax = max.get()
+        while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+            currentMax = max.get()
+        }
+    }
+
+    /**
+     * Returns a copy of the histogram. The counters are read one by one while they may be updated,
+     * so a snapshot taken during recording can be off by the values being recorded
+     */
+    fun snapshot(): HistogramSnapshot {
+        val counts = LongArray(BUCKET_COUNT)
+        for (i in 0 until BUCKET_COUNT) counts[i] = buckets.get(i)
+        return HistogramSnapshot(count.get(), sum.get(), max.get(), counts)
+    }
+
+    companion object {
+        const val BUCKET_COUNT = 64
+
+        /**
+         * @return the index of the bucket of a positive value
+         */
+        @JvmStatic
+        fun bucketOf(value: Long): Int = Math.min(BUCKET_COUNT - 1, 64 - java.lang.Long.numberOfLeadingZeros(value))
+
+        /**
+         * @return the greatest value counted in a bucket
+         */
+        @JvmStatic
+        fun upperBoundOf(bucket: Int): Long = if (bucket >= BUCKET_COUNT - 1) Long.MAX_VALUE else (1L shl bucket) - 1
+    }
+}
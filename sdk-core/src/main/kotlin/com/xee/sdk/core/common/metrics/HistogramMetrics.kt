@@ -0,0 +1,100 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.xee.sdk.core.common.metrics
+
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLongArray
+
+/**
+ * HistogramMetrics aggregates the [CallMetrics] by route in lock-free [Histogram]s.
+ * Call [snapshot] periodically to export them
+ * @author Julien Cholin
+ * @since 4.2.0
+ */
+class HistogramMetrics : XeeMetrics {
+
+    private val routes = ConcurrentHashMap<String, RouteHistograms>()
+
+    override fun onCall(metrics: CallMetrics) {
+        with(histogramsOf(metrics.route)) {
+            dns.record(metrics.dns)
+            connect.record(metrics.connect)
+            tls.record(metrics.tls)
+            timeToFirstByte.record(metrics.timeToFirstByte)
+            body.record(metrics.body)
+            total.record(metrics.total)
+            responseSize.record(metrics.responseSize)
+            statusClasses.incrementAndGet(if (metrics.failed || metrics.statusCode < 100) 0 else Math.min(5, metrics.statusCode / 100))
+        }
+    }
+
+    override fun onDecode(route: String, duration: Long) {
+        histogramsOf(route).decode.record(duration)
+    }
+
+    override fun onQueue(route: String, depth: Int, wait: Long) {
+        with(histogramsOf(route)) {
+            queueDepth.record(depth.toLong())
+            queueWait.record(wait)
+        }
+    }
+
+    /**
+     * Returns a copy of the metrics of each route
+     */
+    fun snapshot(): Map<String, RouteSnapshot> {
+        val snapshots = HashMap<String, RouteSnapshot>(routes.size)
+        for ((route, histograms) in routes) {
+            snapshots[route] = histograms.snapshot(route)
+        }
+        return snapshots
+    }
+
+    /**
+     * Forget all the metrics recorded
+     */
+    fun reset() {
+        routes.clear()
+    }
+
+    private fun histogramsOf(route: String): RouteHistograms {
+        val histograms = routes[route]
+        if (histograms != null) return histograms
+        val newHistograms = RouteHistograms()
+        return routes.putIfAbsent(route, newHistograms) ?: newHistograms
+    }
+
+    private class RouteHistograms {
+        val dns = Histogram()
+        val connect = Histogram()
+        val tls = Histogram()
+        val timeToFirstByte = Histogram()
+        val body = Histogram()
+        val decode = Histogram()
+        val total = Histogram()
+        val responseSize = Histogram()
+        val queueDepth = Histogram()
+        val queueWait = Histogram()
+        // Failures without response, then 1xx to 5xx
+        val statusClasses = AtomicLongArray(6)
+
+        fun snapshot(route: String) = RouteSnapshot(route,
+                dns.snapshot(), connect.snapshot(), tls.snapshot(), timeToFirstByte.snapshot(), body.snapshot(),
+                decode.snapshot(), total.snapshot(), responseSize.snapshot(), queueDepth.snapshot(), queueWait.snapshot(),
+                statusClasses.get(0), statusClasses.get(1), statusClasses.get(2), statusClasses.get(3), statusClasses.get(4), statusClasses.get(5))
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.xee.sdk.core.common.metrics
+
+/**
+ * Copy of a [Histogram] at a given time
+ * @author Julien Cholin
+ * @since 4.2.0
+ */
+class HistogramSnapshot(val count: Long, val sum: Long, val max: Long, private val buckets: LongArray) {
+
+    /**
+     * Mean of the values, 0 if there isn't any
+     */
+    val mean: Double
+        get() = if (count == 0L) 0.0 else sum.toDouble() / count
+
+    /**
+     * @return the number of values in a bucket, see [Histogram.bucketOf]
+     */
+    fun countAt(bucket: Int): Long = buckets[bucket]
+
+    /**
+     * Returns an estimation of a percentile: the upper bound of the bucket holding it, capped by the max
+     * @param percentile the percentile, between 0 and 100
+     */
+    fun percentile(percentile: Double): Long {
+        if (count == 0L) return 0
+        val rank = Math.max(1L, Math.ceil(percentile / 100 * count).toLong())
+        var seen = 0L
+        for (bucket in buckets.indices) {
+            seen += buckets[bucket]
+            if (seen >= rank) return Math.min(max, Histogram.upperBoundOf(bucket))
+        }
+        return max
+    }
+
+    override fun toString(): String = "count=$count, mean=${mean.toLong()}, p50=${percentile(50.0)}, p90=${percentile(90.0)}, p99=${percentile(99.0)}, max=$max"
+}
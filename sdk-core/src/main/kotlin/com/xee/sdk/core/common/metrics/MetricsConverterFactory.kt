@@ -0,0 +1,52 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.xee.sdk.core.common.metrics
+
+import com.xee.sdk.core.common.endpointRoute
+import okhttp3.RequestBody
+import okhttp3.ResponseBody
+import retrofit2.Converter
+import retrofit2.Retrofit
+import java.lang.reflect.Type
+
+/**
+ * MetricsConverterFactory wraps the converters of another [Converter.Factory] to measure the decoding of the bodies
+ * @author Julien Cholin
+ * @since 4.2.0
+ */
+class MetricsConverterFactory(private val delegate: Converter.Factory, private val metrics: XeeMetrics) : Converter.Factory() {
+
+    override fun responseBodyConverter(type: Type, annotations: Array<Annotation>, retrofit: Retrofit): Converter<ResponseBody, *>? {
+        val converter = delegate.responseBodyConverter(type, annotations, retrofit) ?: return null
+        val route = annotations.endpointRoute() ?: return converter
+
+        return Converter<ResponseBody, Any?> { body ->
+            val start = System.nanoTime()
+            try {
+                converter.convert(body)
+            } finally {
+                metrics.onDecode(route, (System.nanoTime() - start) / 1000)
+            }
+        }
+    }
+
+    override fun requestBodyConverter(type: Type, parameterAnnotations: Array<Annotation>, methodAnnotations: Array<Annotation>, retrofit: Retrofit): Converter<*, RequestBody>? =
+            delegate.requestBodyConverter(type, parameterAnnotations, methodAnnotations, retrofit)
+
+    override fun stringConverter(type: Type, annotations: Array<Annotation>, retrofit: Retrofit): Converter<*, String>? =
+            delegate.stringConverter(type, annotations, retrofit)
+}
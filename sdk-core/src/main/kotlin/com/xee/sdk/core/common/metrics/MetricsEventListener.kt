@@ -0,0 +1,131 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.xee.sdk.core.common.metrics
+
+import okhttp3.Call
+import okhttp3.EventListener
+import okhttp3.Handshake
+import okhttp3.Protocol
+import okhttp3.Response
+import java.io.IOException
+import java.net.InetAddress
+import java.net.InetSocketAddress
+import java.net.Proxy
+
+/**
+ * MetricsEventListener measures the phases of one call and reports them to the [XeeMetrics] when the call ends.
+ * OkHttp creates one listener per call, so the fields don't need any synchronization
+ * @author Julien Cholin
+ * @since 4.2.0
+ */
+class MetricsEventListener private constructor(private val metrics: XeeMetrics) : EventListener() {
+
+    private var route: String = ""
+    private var method: String = ""
+    private var callStart = 0L
+    private var dnsStart = 0L
+    private var dns = CallMetrics.NONE
+    private var connectStart = 0L
+    private var connect = CallMetrics.NONE
+    private var tlsStart = 0L
+    private var tls = CallMetrics.NONE
+    private var requestStart = 0L
+    private var timeToFirstByte = CallMetrics.NONE
+    private var bodyStart = 0L
+    private var body = CallMetrics.NONE
+    private var responseSize = CallMetrics.NONE
+    private var statusCode = CallMetrics.NO_STATUS_CODE
+
+    override fun callStart(call: Call) {
+        callStart = System.nanoTime()
+        route = RouteResolver.resolve(call.request().url().encodedPath())
+        method = call.request().method()
+    }
+
+    override fun dnsStart(call: Call, domainName: String) {
+        dnsStart = System.nanoTime()
+    }
+
+    override fun dnsEnd(call: Call, domainName: String, inetAddressList: List<InetAddress>?) {
+        dns = elapsedSince(dnsStart)
+    }
+
+    override fun connectStart(call: Call, inetSocketAddress: InetSocketAddress, proxy: Proxy) {
+        connectStart = System.nanoTime()
+    }
+
+    override fun secureConnectStart(call: Call) {
+        tlsStart = System.nanoTime()
+    }
+
+    override fun secureConnectEnd(call: Call, handshake: Handshake?) {
+        tls = elapsedSince(tlsStart)
+    }
+
+    override fun connectEnd(call: Call, inetSocketAddress: InetSocketAddress, proxy: Proxy, protocol: Protocol?) {
+        connect = elapsedSince(connectStart)
+    }
+
+    override fun connectFailed(call: Call, inetSocketAddress: InetSocketAddress, proxy: Proxy, protocol: Protocol?, ioe: IOException) {
+        connect = elapsedSince(connectStart)
+    }
+
+    override fun requestHeadersStart(call: Call) {
+        requestStart = System.nanoTime()
+    }
+
+    override fun responseHeadersStart(call: Call) {
+        timeToFirstByte = elapsedSince(requestStart)
+    }
+
+    override fun responseHeadersEnd(call: Call, response: Response) {
+        statusCode = response.code()
+    }
+
+    override fun responseBodyStart(call: Call) {
+        bodyStart = System.nanoTime()
+    }
+
+    override fun responseBodyEnd(call: Call, byteCount: Long) {
+        body = elapsedSince(bodyStart)
+        responseSize = byteCount
+    }
+
+    override fun callEnd(call: Call) {
+        report(false)
+    }
+
+    override fun callFailed(call: Call, ioe: IOException) {
+        report(true)
+    }
+
+    private fun report(failed: Boolean) {
+        metrics.onCall(CallMetrics(route, method, statusCode, dns, connect, tls, timeToFirstByte, body,
+                elapsedSince(callStart), responseSize, failed))
+    }
+
+    private fun elapsedSince(start: Long) = (System.nanoTime() - start) / 1000
+
+    companion object {
+        /**
+         * Returns a factory creating a [MetricsEventListener] per call
+         * @param metrics the [XeeMetrics] receiving the measures
+         */
+        @JvmStatic
+        fun factory(metrics: XeeMetrics) = EventListener.Factory { MetricsEventListener(metrics) }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.xee.sdk.core.common.metrics
+
+import java.util.concurrent.CopyOnWriteArrayList
+
+/**
+ * RouteResolver finds the route template, as declared in the endpoints, of a request path,
+ * so the metrics and the circuits are keyed by route instead of by URL.
+ * The templates are registered by the [com.xee.sdk.core.common.CoalescingCallAdapterFactory] when Retrofit builds the endpoint methods
+ * @author Julien Cholin
+ * @since 4.2.0
+ */
+object RouteResolver {
+
+    private const val PARAMETER = "{id}"
+    private val templates = CopyOnWriteArrayList<Template>()
+
+    /**
+     * Register a route template like "vehicles/{vehicleId}/status"
+     */
+    @JvmStatic
+    fun register(route: String) {
+        val template = Template(route)
+        if (templates.any { it.route == route }) return
+
+        // The most specific templates are tried first: the longest ones, then the ones with the most literal segments
+        synchronized(templates) {
+            if (templates.any { it.route == route }) return
+            var index = 0
+            while (index < templates.size && templates[index].isMoreSpecificThan(template)) index++
+            templates.add(index, template)
+        }
+    }
+
+    /**
+     * Returns the template matching the end of the given path. If there isn't any,
+     * the segments containing a digit are replaced by {id} to keep a bounded number of routes
+     * @param encodedPath the path of the request, including the path of the base URL
+     */
+    @JvmStatic
+    fun resolve(encodedPath: String): String {
+        val segments = encodedPath.split('/').filter { it.isNotEmpty() }
+        for (template in templates) {
+            if (template.matches(segments)) return template.route
+        }
+        return segments.joinToString("/") { segment -> if (segment.any { it.isDigit() }) PARAMETER else segment }
+    }
+
+    private class Template(val route: String) {
+        private val segments = route.split('/').filter { it.isNotEmpty() }
+        private val literals = segments.count { !isParameter(it) }
+
+        fun matches(pathSegments: List<String>): Boolean {
+            if (pathSegments.size < segments.size) return false
+            val offset = pathSegments.size - segments.size
+            for (i in segments.indices) {
+                if (!isParameter(segments[i]) && segments[i] != pathSegments[offset + i]) return false
+            }
+            return true
+        }
+
+        fun isMoreSpecificThan(other: Template): Boolean =
+                segments.size > other.segments.size || (segments.size == other.segments.size && literals >= other.literals)
+
+        private fun isParameter(segment: String) = segment.startsWith("{") && segment.endsWith("}")
+    }
+}
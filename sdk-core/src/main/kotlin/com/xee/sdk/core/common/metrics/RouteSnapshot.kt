@@ -0,0 +1,47 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.xee.sdk.core.common.metrics
+
+/**
+ * Metrics of one route at a given time. The durations are in µs and the sizes in bytes
+ * @author Julien Cholin
+ * @since 4.2.0
+ */
+data class RouteSnapshot(val route: String,
+                         val dns: HistogramSnapshot,
+                         val connect: HistogramSnapshot,
+                         val tls: HistogramSnapshot,
+                         val timeToFirstByte: HistogramSnapshot,
+                         val body: HistogramSnapshot,
+                         val decode: HistogramSnapshot,
+                         val total: HistogramSnapshot,
+                         val responseSize: HistogramSnapshot,
+                         val queueDepth: HistogramSnapshot,
+                         val queueWait: HistogramSnapshot,
+                         val failures: Long,
+                         val informational: Long,
+                         val successes: Long,
+                         val redirections: Long,
+                         val clientErrors: Long,
+                         val serverErrors: Long) {
+
+    /**
+     * Number of calls finished, with or without response
+     */
+    val calls: Long
+        get() = failures + informational + successes + redirections + clientErrors + serverErrors
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.xee.sdk.core.common.metrics
+
+/**
+ * XeeMetrics receives the measures of the requests sent by the SDK modules.
+ * Set an implementation on the [com.xee.sdk.core.common.XeeEnv] before creating the modules,
+ * [HistogramMetrics] aggregates them by route
+ * @author Julien Cholin
+ * @since 4.2.0
+ */
+interface XeeMetrics {
+    /**
+     * Fired when a call is finished, successfully or not
+     * @param metrics the [CallMetrics] of the call
+     */
+    fun onCall(metrics: CallMetrics)
+
+    /**
+     * Fired when a response body has been decoded into a model
+     * @param route the route template, as declared in the endpoints
+     * @param duration the time in µs spent to decode the body
+     */
+    fun onDecode(route: String, duration: Long)
+
+    /**
+     * Fired when a request governed by a [com.xee.sdk.core.common.governor.RequestGovernor] leaves the queue
+     * @param route the route template, as declared in the endpoints
+     * @param depth the number of requests still waiting in the queue
+     * @param wait the time in µs the request has waited
+     */
+    fun onQueue(route: String, depth: Int, wait: Long)
+}
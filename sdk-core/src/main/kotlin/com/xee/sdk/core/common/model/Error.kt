@@ -90,15 +90,20 @@ data class ErrorDetails(@SerializedName("field") var field: String? = null,
     }
 }
 
+/**
+ * Gson shared by the error parsers, so the reflective adapter of [Error] is only built once
+ */
+private val ERROR_GSON = Gson()
+private val LIST_ERROR_TYPE = object : TypeToken<List<Error>>() {}.type
+
 /**
  * Parse error response from API to create an [Error]
  */
 fun String.parseResponseError(): Error? = when {
     this.startsWith("{") ->
-        Gson().fromJson<Error>(this, Error::class.java)
+        ERROR_GSON.fromJson<Error>(this, Error::class.java)
     this.startsWith("[") -> {
-        val listErrorType = object : TypeToken<List<Error>>() {}.type
-        Gson().fromJson<List<Error>>(this, listErrorType)[0]
+        ERROR_GSON.fromJson<List<Error>>(this, LIST_ERROR_TYPE)[0]
     }
     else -> Error("unexpected_error", this)
 }
@@ -113,12 +118,11 @@ fun Throwable.buildThrowableError(): Throwable {
         val errorBody: String = this.response().errorBody()!!.string()
         when {
             errorBody.startsWith("{") -> {
-                error = Gson().fromJson<Error>(errorBody, Error::class.java)
+                error = ERROR_GSON.fromJson<Error>(errorBody, Error::class.java)
                 error?.code = this.response().code()
             }
             errorBody.startsWith("[") -> {
-                val listErrorType = object : TypeToken<List<Error>>() {}.type
-                error = Gson().fromJson<List<Error>>(errorBody, listErrorType)[0]
+                error = ERROR_GSON.fromJson<List<Error>>(errorBody, LIST_ERROR_TYPE)[0]
                 error.code = this.response().code()
             }
             else -> error = Error(errorBody, this.response().message(), null, this.response().code())
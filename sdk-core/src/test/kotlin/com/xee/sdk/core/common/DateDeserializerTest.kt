@@ -0,0 +1,80 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.xee.sdk.core.common
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Test
+import java.text.SimpleDateFormat
+import java.util.*
+
+class DateDeserializerTest {
+
+    @Test
+    fun parseMillis_withoutMilliseconds() {
+        assertEquals(1489573230000L, DateDeserializer.parseMillis("2017-03-15T10:20:30Z"))
+        assertEquals(1456790399000L, DateDeserializer.parseMillis("2016-02-29T23:59:59Z"))
+        assertEquals(946684800000L, DateDeserializer.parseMillis("2000-01-01T00:00:00Z"))
+    }
+
+    @Test
+    fun parseMillis_withMilliseconds() {
+        assertEquals(1489573230123L, DateDeserializer.parseMillis("2017-03-15T10:20:30.123Z"))
+        assertEquals(1489573230500L, DateDeserializer.parseMillis("2017-03-15T10:20:30.5Z"))
+        // Only the milliseconds are kept
+        assertEquals(1489573230123L, DateDeserializer.parseMillis("2017-03-15T10:20:30.123456Z"))
+    }
+
+    @Test
+    fun parseMillis_beforeEpoch() {
+        assertEquals(-1000L, DateDeserializer.parseMillis("1969-12-31T23:59:59Z"))
+    }
+
+    @Test
+    fun parseMillis_rejectsMalformedDates() {
+        assertNull(DateDeserializer.parseMillis("2017-03-15T10:20:30"))
+        assertNull(DateDeserializer.parseMillis("2017-03-15 10:20:30Z"))
+        assertNull(DateDeserializer.parseMillis("2017-13-15T10:20:30Z"))
+        assertNull(DateDeserializer.parseMillis("2017-03-15T24:20:30Z"))
+        assertNull(DateDeserializer.parseMillis("2017-03-15T10:20:30.Z"))
+        assertNull(DateDeserializer.parseMillis("2017-03-15T10:20:30+01:00"))
+        assertNull(DateDeserializer.parseMillis("2017-03-1"))
+    }
+
+    @Test
+    fun formatMillis() {
+        assertEquals("2017-03-15T10:20:30Z", DateDeserializer.formatMillis(1489573230000L))
+        assertEquals("2016-02-29T23:59:59Z", DateDeserializer.formatMillis(1456790399999L))
+        assertEquals("1970-01-01T00:00:00Z", DateDeserializer.formatMillis(0L))
+        assertEquals("1969-12-31T23:59:59Z", DateDeserializer.formatMillis(-1L))
+    }
+
+    @Test
+    fun formatMillis_matchesSimpleDateFormat() {
+        val formatter = SimpleDateFormat(DateDeserializer.DATE_FORMAT, Locale.US)
+        formatter.timeZone = TimeZone.getTimeZone("UTC")
+        val random = Random(42)
+        for (i in 0 until 10000) {
+            // Between 1900 and 2100
+            val millis = (random.nextDouble() * 6311433600000L).toLong() - 2208988800000L
+            val expected = formatter.format(Date(millis))
+            assertEquals(expected, DateDeserializer.formatMillis(millis))
+            assertEquals(millis / 1000 * 1000 - if (millis < 0 && millis % 1000 != 0L) 1000 else 0,
+                    DateDeserializer.parseMillis(expected))
+        }
+    }
+}
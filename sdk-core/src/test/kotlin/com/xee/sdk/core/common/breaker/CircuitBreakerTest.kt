@@ -0,0 +1,172 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.xee.sdk.core.common.breaker
+
+import com.xee.sdk.core.common.breaker.CircuitBreaker.State
+import org.junit.Assert.assertEquals
+import org.junit.Assert.fail
+import org.junit.Test
+
+class CircuitBreakerTest {
+
+    private val policy = CircuitBreakerPolicy(windowSize = 4, minimumCalls = 4, failureRateThreshold = 0.5, openDuration = 50)
+    private val states = ArrayList<State>()
+    private var now = 0L
+    private val circuitBreaker = CircuitBreaker(policy, object : CircuitBreakerListener {
+        override fun onStateChanged(route: String, state: State) {
+            states.add(state)
+        }
+    }, { now })
+
+    @Test
+    fun staysClosed_belowMinimumCalls() {
+        val circuit = circuitBreaker.circuitOf(ROUTE)
+        repeat(3) { call(circuit, false) }
+        assertEquals(State.CLOSED, circuitBreaker.state(ROUTE))
+    }
+
+    @Test
+    fun staysClosed_belowThreshold() {
+        val circuit = circuitBreaker.circuitOf(ROUTE)
+        call(circuit, false)
+        repeat(5) { call(circuit, true) }
+        call(circuit, false)
+        assertEquals(State.CLOSED, circuitBreaker.state(ROUTE))
+    }
+
+    @Test
+    fun opens_atThreshold() {
+        val circuit = circuitBreaker.circuitOf(ROUTE)
+        call(circuit, true)
+        call(circuit, false)
+        call(circuit, true)
+        call(circuit, false)
+        assertEquals(State.OPEN, circuitBreaker.state(ROUTE))
+        assertEquals(listOf(State.OPEN), states)
+        // The other routes are not affected
+        assertEquals(State.CLOSED, circuitBreaker.state(OTHER_ROUTE))
+    }
+
+    @Test
+    fun open_rejectsCalls() {
+        val circuit = open()
+        try {
+            circuit.acquire()
+            fail("The call should have been rejected")
+        } catch (e: CircuitOpenException) {
+            assertEquals(ROUTE, e.route)
+        }
+    }
+
+    @Test
+    fun open_untilOpenDuration() {
+        val circuit = open()
+        now += policy.openDuration - 1
+        try {
+            circuit.acquire()
+            fail("The call should have been rejected")
+        } catch (e: CircuitOpenException) {
+            assertEquals(1, e.retryIn)
+        }
+    }
+
+    @Test
+    fun halfOpen_afterOpenDuration() {
+        val circuit = open()
+        now += policy.openDuration
+        circuit.acquire()
+        assertEquals(State.HALF_OPEN, circuitBreaker.state(ROUTE))
+        assertEquals(listOf(State.OPEN, State.HALF_OPEN), states)
+    }
+
+    @Test
+    fun halfOpen_rejectsCallsDuringProbe() {
+        val circuit = open()
+        now += policy.openDuration
+        circuit.acquire()
+        try {
+            circuit.acquire()
+            fail("The call should have been rejected")
+        } catch (e: CircuitOpenException) {
+            assertEquals(State.HALF_OPEN, circuitBreaker.state(ROUTE))
+        }
+    }
+
+    @Test
+    fun halfOpen_closesOnProbeSuccess() {
+        val circuit = open()
+        now += policy.openDuration
+        call(circuit, true)
+        assertEquals(State.CLOSED, circuitBreaker.state(ROUTE))
+        assertEquals(listOf(State.OPEN, State.HALF_OPEN, State.CLOSED), states)
+
+        // The past failures are forgotten
+        repeat(3) { call(circuit, false) }
+        assertEquals(State.CLOSED, circuitBreaker.state(ROUTE))
+    }
+
+    @Test
+    fun halfOpen_opensOnProbeFailure() {
+        val circuit = open()
+        now += policy.openDuration
+        call(circuit, false)
+        assertEquals(State.OPEN, circuitBreaker.state(ROUTE))
+        assertEquals(listOf(State.OPEN, State.HALF_OPEN, State.OPEN), states)
+    }
+
+    @Test
+    fun halfOpen_releaseFreesProbe() {
+        val circuit = open()
+        now += policy.openDuration
+        circuit.acquire()
+        circuit.release()
+        circuit.acquire()
+        assertEquals(State.HALF_OPEN, circuitBreaker.state(ROUTE))
+    }
+
+    @Test
+    fun reset_closesCircuits() {
+        open()
+        circuitBreaker.reset()
+        assertEquals(State.CLOSED, circuitBreaker.state(ROUTE))
+        assertEquals(emptyMap<String, State>(), circuitBreaker.states())
+    }
+
+    @Test
+    fun none_neverOpens() {
+        val circuit = CircuitBreaker(CircuitBreakerPolicy.NONE).circuitOf(ROUTE)
+        repeat(100) { call(circuit, false) }
+        assertEquals(State.CLOSED, circuit.state())
+    }
+
+    private fun open(): CircuitBreaker.Circuit {
+        val circuit = circuitBreaker.circuitOf(ROUTE)
+        repeat(policy.minimumCalls) { call(circuit, false) }
+        assertEquals(State.OPEN, circuitBreaker.state(ROUTE))
+        return circuit
+    }
+
+    private fun call(circuit: CircuitBreaker.Circuit, success: Boolean) {
+        circuit.acquire()
+        circuit.onResult(success)
+    }
+
+    companion object {
+        private const val ROUTE = "vehicles/{vehicleId}/status"
+        private const val OTHER_ROUTE = "vehicles/{vehicleId}/trips"
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.xee.sdk.core.common.geo
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertSame
+import org.junit.Test
+
+class PolylineTest {
+
+    // Example of the Google encoded polyline algorithm documentation
+    private val google = Polyline(doubleArrayOf(38.5, 40.7, 43.252), doubleArrayOf(-120.2, -120.95, -126.453))
+    private val googleEncoded = "_p~iF~ps|U_ulLnnqC_mqNvxq`@"
+
+    @Test
+    fun encode() {
+        assertEquals(googleEncoded, google.encode())
+        assertEquals("`~oia@", Polyline(doubleArrayOf(-179.9832104), doubleArrayOf(0.0)).encode().dropLast(1))
+        assertEquals("", Polyline(DoubleArray(0), DoubleArray(0)).encode())
+    }
+
+    @Test
+    fun encode_roundsToPrecision() {
+        val polyline = Polyline(doubleArrayOf(38.500004, 40.699996), doubleArrayOf(-120.200004, -120.949996))
+        assertEquals("_p~iF~ps|U_ulLnnqC", polyline.encode())
+    }
+
+    @Test
+    fun decode() {
+        assertEquals(google, Polyline.decode(googleEncoded))
+        assertEquals(0, Polyline.decode("").size)
+    }
+
+    @Test
+    fun decode_roundTrip() {
+        val polyline = Polyline(doubleArrayOf(48.858370, 48.853410, -33.856784), doubleArrayOf(2.294481, 2.348800, 151.215297))
+        assertEquals(polyline, Polyline.decode(polyline.encode(6), 6))
+    }
+
+    @Test(expected = IllegalArgumentException::class)
+    fun decode_rejectsTruncatedPolyline() {
+        Polyline.decode(googleEncoded.substring(0, 9))
+    }
+
+    @Test(expected = IllegalArgumentException::class)
+    fun constructor_rejectsDifferentSizes() {
+        Polyline(DoubleArray(2), DoubleArray(1))
+    }
+
+    @Test
+    fun simplify_douglasPeucker() {
+        assertEquals(corner, square.simplify(10.0, Simplification.DOUGLAS_PEUCKER))
+    }
+
+    @Test
+    fun simplify_visvalingam() {
+        assertEquals(corner, square.simplify(10.0, Simplification.VISVALINGAM))
+    }
+
+    @Test
+    fun simplify_withoutTolerance() {
+        assertSame(square, square.simplify(0.0))
+        val line = Polyline(doubleArrayOf(0.0, 0.0), doubleArrayOf(0.0, 0.001))
+        assertSame(line, line.simplify(1000.0))
+    }
+
+    @Test
+    fun simplify_keepsEndpoints() {
+        // All the points are within the tolerance, only the first and the last remain
+        val simplified = square.simplify(1000000.0)
+        assertEquals(Polyline(doubleArrayOf(0.0, 0.002), doubleArrayOf(0.0, 0.002)), simplified)
+    }
+
+    @Test
+    fun toleranceAtZoom() {
+        assertEquals(156543.03392, Polyline.toleranceAtZoom(0.0, 0.0), 1e-6)
+        assertEquals(156543.03392 / 1024, Polyline.toleranceAtZoom(10.0, 0.0), 1e-6)
+        assertEquals(156543.03392 / 2, Polyline.toleranceAtZoom(0.0, 60.0), 1e-6)
+        assertEquals(156543.03392 * 2, Polyline.toleranceAtZoom(0.0, 0.0, 2.0), 1e-6)
+    }
+
+    companion object {
+        // Two sides of a square of about 220m, with intermediate collinear points
+        private val square = Polyline(doubleArrayOf(0.0, 0.0, 0.0, 0.001, 0.002), doubleArrayOf(0.0, 0.001, 0.002, 0.002, 0.002))
+        private val corner = Polyline(doubleArrayOf(0.0, 0.0, 0.002), doubleArrayOf(0.0, 0.002, 0.002))
+    }
+}
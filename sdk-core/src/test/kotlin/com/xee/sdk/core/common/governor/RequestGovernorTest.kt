@@ -0,0 +1,133 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.xee.sdk.core.common.governor
+
+import io.reactivex.schedulers.TestScheduler
+import io.reactivex.subjects.PublishSubject
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.util.concurrent.TimeUnit
+
+class RequestGovernorTest {
+
+    private val scheduler = TestScheduler()
+
+    @Test
+    fun rate_burstThenOnePerPermit() {
+        val governor = RequestGovernor(RateLimit(permitsPerSecond = 2.0, burst = 2), scheduler = scheduler)
+        val requests = List(4) { PublishSubject.create<Int>() }
+        for (request in requests) governor.govern(ROUTE, request).subscribe()
+
+        assertStarted(requests, true, true, false, false)
+        assertEquals(2, governor.queueDepth())
+
+        scheduler.advanceTimeBy(499, TimeUnit.MILLISECONDS)
+        assertStarted(requests, true, true, false, false)
+        scheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS)
+        assertStarted(requests, true, true, true, false)
+        scheduler.advanceTimeBy(500, TimeUnit.MILLISECONDS)
+        assertStarted(requests, true, true, true, true)
+        assertEquals(0, governor.queueDepth())
+    }
+
+    @Test
+    fun rate_burstRefilledAfterQuietPeriod() {
+        val governor = RequestGovernor(RateLimit(permitsPerSecond = 1.0, burst = 3), scheduler = scheduler)
+        repeat(3) { governor.govern(ROUTE, PublishSubject.create<Int>()).subscribe() }
+
+        // The bucket doesn't fill above the burst
+        scheduler.advanceTimeBy(10, TimeUnit.SECONDS)
+        val requests = List(4) { PublishSubject.create<Int>() }
+        for (request in requests) governor.govern(ROUTE, request).subscribe()
+        assertStarted(requests, true, true, true, false)
+    }
+
+    @Test
+    fun maxInFlight_startsNextWhenOneEnds() {
+        val governor = RequestGovernor(RateLimit(maxInFlight = 2), scheduler = scheduler)
+        val requests = List(4) { PublishSubject.create<Int>() }
+        val values = ArrayList<Int>()
+        for (request in requests) governor.govern(ROUTE, request).subscribe({ values.add(it) }, {})
+        assertStarted(requests, true, true, false, false)
+
+        requests[1].onNext(1)
+        requests[1].onComplete()
+        assertStarted(requests, true, false, true, false)
+
+        // A failed request frees its slot too
+        requests[0].onError(IllegalStateException())
+        assertStarted(requests, false, false, true, true)
+        assertEquals(listOf(1), values)
+    }
+
+    @Test
+    fun queue_drainedInOrder() {
+        val governor = RequestGovernor(RateLimit(maxInFlight = 1), scheduler = scheduler)
+        val started = ArrayList<Int>()
+        val requests = List(3) { PublishSubject.create<Int>() }
+        requests.forEachIndexed { i, request -> governor.govern(ROUTE, request.doOnSubscribe { started.add(i) }).subscribe() }
+
+        requests[0].onComplete()
+        requests[1].onComplete()
+        assertEquals(listOf(0, 1, 2), started)
+    }
+
+    @Test
+    fun cancel_queuedRequestIsNeverStarted() {
+        val governor = RequestGovernor(RateLimit(maxInFlight = 1), scheduler = scheduler)
+        val requests = List(3) { PublishSubject.create<Int>() }
+        val disposables = requests.map { governor.govern(ROUTE, it).subscribe() }
+        assertEquals(2, governor.queueDepth())
+
+        disposables[1].dispose()
+        assertEquals(1, governor.queueDepth())
+        requests[0].onComplete()
+        assertStarted(requests, false, false, true)
+    }
+
+    @Test
+    fun cancel_startedRequestFreesItsSlot() {
+        val governor = RequestGovernor(RateLimit(maxInFlight = 1), scheduler = scheduler)
+        val requests = List(2) { PublishSubject.create<Int>() }
+        val disposables = requests.map { governor.govern(ROUTE, it).subscribe() }
+        assertStarted(requests, true, false)
+
+        disposables[0].dispose()
+        assertStarted(requests, false, true)
+    }
+
+    @Test
+    fun noLimit_startsEverything() {
+        val governor = RequestGovernor(RateLimit(), scheduler = scheduler)
+        val requests = List(100) { PublishSubject.create<Int>() }
+        for (request in requests) governor.govern(ROUTE, request).subscribe()
+        for (request in requests) assertTrue(request.hasObservers())
+    }
+
+    private fun assertStarted(requests: List<PublishSubject<Int>>, vararg started: Boolean) {
+        for (i in started.indices) {
+            if (started[i]) assertTrue("request $i should be running", requests[i].hasObservers())
+            else assertFalse("request $i should not be running", requests[i].hasObservers())
+        }
+    }
+
+    companion object {
+        private const val ROUTE = "vehicles/{vehicleId}/status"
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xee.sdk.fleet
+
+import com.xee.sdk.fleet.model.Behavior
+import com.xee.sdk.fleet.model.Trip
+import io.reactivex.Observable
+import io.reactivex.Single
+import io.reactivex.schedulers.Schedulers
+import java.util.*
+
+/**
+ * BehaviorAnalytics rolls up the [Behavior]s of the trips by driver and by vehicle, as the trips arrive:
+ * number of behaviors per 100 km, distribution of their severity and histogram of the hours of the day.
+ * The rollups are kept in primitive arrays, one slot per driver or vehicle, so a fleet costs a few arrays instead of
+ * an object per behavior. A trip is counted once even if it is added again
+ * @param timeZone the [TimeZone] of the hours of the day
+ * @author Julien Cholin
+ * @since 4.2.0
+ */
+class BehaviorAnalytics @JvmOverloads constructor(private val timeZone: TimeZone = TimeZone.getDefault()) {
+
+    companion object {
+        /**
+         * The types of [Behavior] rolled up, the other ones are ignored
+         */
+        @JvmField
+        val TYPES = arrayOf(Behavior.SPEED_LIMIT, Behavior.HARD_ACCELERATION, Behavior.HARD_BRAKING, Behavior.RPM_LIMIT)
+
+        /**
+         * Upper bounds of the severity buckets, as the excess of the value over the default one: 10%, 25%, 50%, 100% and more
+         */
+        @JvmField
+        val SEVERITY_BOUNDS = doubleArrayOf(0.1, 0.25, 0.5, 1.0)
+
+        const val HOURS = 24
+        @JvmField
+        val SEVERITY_BUCKETS = SEVERITY_BOUNDS.size + 1
+        private const val INITIAL_CAPACITY = 16
+
+        /**
+         * Computes the analytics of many trips in parallel: the trips are split in chunks rolled up on the computation
+         * threads, then the chunks are merged
+         * @param trips the [Trip]s with their behaviors, like the ones of [XeeFleet.getTripBehaviors]
+         * @param driverOf returns the uuid of the driver of a trip, null if unknown, like [LoanIndex.driverIdAt] at its start date
+         * @param parallelism the number of chunks rolled up at the same time
+         * @param timeZone the [TimeZone] of the hours of the day
+         */
+        @JvmStatic
+        @JvmOverloads
+        fun compute(trips: List<Trip>,
+                    driverOf: (Trip) -> String?,
+                    parallelism: Int = Runtime.getRuntime().availableProcessors(),
+                    timeZone: TimeZone = TimeZone.getDefault()): Single<BehaviorAnalytics> {
+            if (parallelism < 1) return Single.error(IllegalArgumentException("parallelism must be positive"))
+
+            // The duplicated trips must be in the same chunk, otherwise both chunks would count them
+            val uniqueTrips = LinkedHashMap<String, Trip>(trips.size * 2)
+            for (trip in trips) uniqueTrips[trip.id] = trip
+            val uniqueTripList = ArrayList(uniqueTrips.values)
+            val chunkSize = Math.max(1, (uniqueTripList.size + parallelism - 1) / parallelism)
+            val chunks = ArrayList<List<Trip>>()
+            for (from in 0 until uniqueTripList.size step chunkSize) {
+                chunks.add(uniqueTripList.subList(from, Math.min(uniqueTripList.size, from + chunkSize)))
+            }
+
+            return Observable.fromIterable(chunks)
+                    .flatMap<BehaviorAnalytics>({ chunk ->
+                        Observable.fromCallable {
+                            val analytics = BehaviorAnalytics(timeZone)
+                            for (trip in chunk) analytics.add(trip, driverOf(trip))
+                            analytics
+                        }.subscribeOn(Schedulers.computation())
+                    }, parallelism)
+                    // Each subscription gets its own seed, a shared one would sum the trips of all of them
+                    .reduceWith({ BehaviorAnalytics(timeZone) }) { merged, analytics -> merged.merge(analytics) }
+        }
+    }
+
+    private val calendar = Calendar.getInstance(timeZone)
+    private val tripIds = HashSet<String>()
+    private val drivers = Rollups()
+    private val vehicles = Rollups()
+
+    /**
+     * Roll up the behaviors of a trip
+     * @param trip the [Trip] with its behaviors
+     * @param driverId the uuid of the driver of the trip, null to only roll up the vehicle
+     * @return false if the trip has already been added
+     */
+    @JvmOverloads
+    @Synchronized
+    fun add(trip: Trip, driverId: String? = null): Boolean {
+        if (!tripIds.add(trip.id)) return false
+
+        val driverSlot = driverId?.let { drivers.slotOf(it) } ?: -1
+        val vehicleSlot = trip.vehicleId?.let { vehicles.slotOf(it) } ?: -1
+        val distance = trip.distance ?: 0.0
+        if (driverSlot >= 0) drivers.addTrip(driverSlot, distance)
+        if (vehicleSlot >= 0) vehicles.addTrip(vehicleSlot, distance)
+
+        for (behavior in trip.behaviors.orEmpty()) {
+            val type = TYPES.indexOf(behavior.type)
+            if (type < 0) continue
+            val count = behavior.count ?: 1
+            val severity = severityOf(behavior)
+            val hour = behavior.startDate?.let {
+                calendar.time = it
+                calendar.get(Calendar.HOUR_OF_DAY)
+            } ?: -1
+            if (driverSlot >= 0) drivers.addBehavior(driverSlot, type, severity, hour, count)
+            if (vehicleSlot >= 0) vehicles.addBehavior(vehicleSlot, type, severity, hour, count)
+        }
+        return true
+    }
+
+    /**
+     * @return the [BehaviorRollup] of a driver, null if none of its trips has been added
+     */
+    @Synchronized
+    fun driver(driverId: String): BehaviorRollup? = drivers.rollup(driverId)
+
+    /**
+     * @return the [BehaviorRollup] of a vehicle, null if none of its trips has been added
+     */
+    @Synchronized
+    fun vehicle(vehicleId: String): BehaviorRollup? = vehicles.rollup(vehicleId)
+
+    /**
+     * @return the uuids of the drivers rolled up
+     */
+    @Synchronized
+    fun driverIds(): Set<String> = HashSet(drivers.keys())
+
+    /**
+     * @return the uuids of the vehicles rolled up
+     */
+    @Synchronized
+    fun vehicleIds(): Set<String> = HashSet(vehicles.keys())
+
+    /**
+     * Add the rollups of other analytics, built from other trips: the trips already added here are not removed from them
+     * @param other the [BehaviorAnalytics] to add
+     * @return these analytics
+     */
+    fun merge(other: BehaviorAnalytics): BehaviorAnalytics {
+        // The other analytics are copied under their own lock only, holding both locks would deadlock
+        // two analytics merged into each other at the same time
+        val (otherTripIds, otherDrivers, otherVehicles) = synchronized(other) {
+            Triple(HashSet(other.tripIds), other.drivers.copy(), other.vehicles.copy())
+        }
+        synchronized(this) {
+            tripIds.addAll(otherTripIds)
+            drivers.merge(otherDrivers)
+            vehicles.merge(otherVehicles)
+        }
+        return this
+    }
+
+    private fun severityOf(behavior: Behavior): Int {
+        if (behavior.defaultValue <= 0) return 0
+        val excess = behavior.value / behavior.defaultValue - 1
+        for (i in 0 until SEVERITY_BOUNDS.size) if (excess < SEVERITY_BOUNDS[i]) return i
+        return SEVERITY_BOUNDS.size
+    }
+
+    /**
+     * Rollups of a kind of key, each key having its slot in the arrays
+     */
+    private class Rollups {
+        private val slots = HashMap<String, Int>()
+        private var trips = IntArray(INITIAL_CAPACITY)
+        private var distances = DoubleArray(INITIAL_CAPACITY)
+        private var counts = IntArray(INITIAL_CAPACITY * TYPES.size)
+        private var severities = IntArray(INITIAL_CAPACITY * TYPES.size * SEVERITY_BUCKETS)
+        private var hours = IntArray(INITIAL_CAPACITY * TYPES.size * HOURS)
+
+        fun keys(): Set<String> = slots.keys
+
+        fun slotOf(key: String): Int {
+            slots[key]?.let { return it }
+            val slot = slots.size
+            if (slot == trips.size) {
+                val capacity = 2 * trips.size
+                trips = Arrays.copyOf(trips, capacity)
+                distances = Arrays.copyOf(distances, capacity)
+                counts = Arrays.copyOf(counts, capacity * TYPES.size)
+                severities = Arrays.copyOf(severities, capacity * TYPES.size * SEVERITY_BUCKETS)
+                hours = Arrays.copyOf(hours, capacity * TYPES.size * HOURS)
+            }
+            slots[key] = slot
+            return slot
+        }
+
+        fun addTrip(slot: Int, distance: Double) {
+            trips[slot]++
+            distances[slot] += distance
+        }
+
+        fun addBehavior(slot: Int, type: Int, severity: Int, hour: Int, count: Int) {
+            val typeSlot = slot * TYPES.size + type
+            counts[typeSlot] += count
+            severities[typeSlot * SEVERITY_BUCKETS + severity] += count
+            if (hour >= 0) hours[typeSlot * HOURS + hour] += count
+        }
+
+        fun rollup(key: String): BehaviorRollup? {
+            val slot = slots[key] ?: return null
+            val typeSlot = slot * TYPES.size
+            return BehaviorRollup(trips[slot], distances[slot],
+                    Arrays.copyOfRange(counts, typeSlot, typeSlot + TYPES.size),
+                    Arrays.copyOfRange(severities, typeSlot * SEVERITY_BUCKETS, (typeSlot + TYPES.size) * SEVERITY_BUCKETS),
+                    Arrays.copyOfRange(hours, typeSlot * HOURS, (typeSlot + TYPES.size) * HOURS))
+        }
+
+        fun copy(): Rollups {
+            val copy = Rollups()
+            copy.slots.putAll(slots)
+            copy.trips = trips.copyOf()
+            copy.distances = distances.copyOf()
+            copy.counts = counts.copyOf()
+            copy.severities = severities.copyOf()
+            copy.hours = hours.copyOf()
+            return copy
+        }
+
+        fun merge(other: Rollups) {
+            for ((key, otherSlot) in other.slots) {
+                val slot = slotOf(key)
+                trips[slot] += other.trips[otherSlot]
+                distances[slot] += other.distances[otherSlot]
+                addRange(counts, other.counts, slot * TYPES.size, otherSlot * TYPES.size, TYPES.size)
+                addRange(severities, other.severities, slot * TYPES.size * SEVERITY_BUCKETS, otherSlot * TYPES.size * SEVERITY_BUCKETS, TYPES.size * SEVERITY_BUCKETS)
+                addRange(hours, other.hours, slot * TYPES.size * HOURS, otherSlot * TYPES.size * HOURS, TYPES.size * HOURS)
+            }
+        }
+
+        private fun addRange(values: IntArray, otherValues: IntArray, offset: Int, otherOffset: Int, length: Int) {
+            for (i in 0 until length) values[offset + i] += otherValues[otherOffset + i]
+        }
+    }
+}
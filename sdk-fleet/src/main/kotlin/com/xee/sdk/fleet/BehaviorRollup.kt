@@ -0,0 +1,66 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xee.sdk.fleet
+
+import com.xee.sdk.fleet.model.Behavior
+import java.util.*
+
+/**
+ * Snapshot of the behaviors of a driver or a vehicle computed by the [BehaviorAnalytics]
+ * @param trips the number of trips
+ * @param distance the distance driven in km
+ * @author Julien Cholin
+ * @since 4.2.0
+ */
+class BehaviorRollup internal constructor(val trips: Int,
+                                          val distance: Double,
+                                          private val counts: IntArray,
+                                          private val severities: IntArray,
+                                          private val hours: IntArray) {
+
+    /**
+     * @return the number of behaviors of this type, like [Behavior.HARD_BRAKING]
+     */
+    fun count(type: String): Int = typeIndex(type)?.let { counts[it] } ?: 0
+
+    /**
+     * @return the number of behaviors of this type, like [Behavior.HARD_BRAKING], per 100 km driven
+     */
+    fun eventsPer100Km(type: String): Double = if (distance > 0) 100 * count(type) / distance else 0.0
+
+    /**
+     * @return the number of behaviors of all the types per 100 km driven
+     */
+    fun eventsPer100Km(): Double = if (distance > 0) 100 * counts.sum() / distance else 0.0
+
+    /**
+     * Returns the number of behaviors of this type by severity: the excess of their value over the default one,
+     * split by [BehaviorAnalytics.SEVERITY_BOUNDS]. The behaviors without default value are in the first bucket
+     */
+    fun severityDistribution(type: String): IntArray = slice(severities, type, BehaviorAnalytics.SEVERITY_BUCKETS)
+
+    /**
+     * @return the number of behaviors of this type by hour of the day of their start
+     */
+    fun hourHistogram(type: String): IntArray = slice(hours, type, BehaviorAnalytics.HOURS)
+
+    private fun slice(values: IntArray, type: String, width: Int): IntArray {
+        val index = typeIndex(type) ?: return IntArray(width)
+        return Arrays.copyOfRange(values, index * width, (index + 1) * width)
+    }
+
+    private fun typeIndex(type: String): Int? = BehaviorAnalytics.TYPES.indexOf(type).takeIf { it >= 0 }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.xee.sdk.fleet
+
+import com.xee.sdk.fleet.model.FleetStatus
+import com.xee.sdk.fleet.model.Status
+import io.reactivex.Observable
+import io.reactivex.Scheduler
+import io.reactivex.schedulers.Schedulers
+import java.util.concurrent.TimeUnit
+
+/**
+ * FleetStatusMonitor polls the [FleetStatus] of a fleet and emits only the vehicles whose status has changed.
+ * The interval is reset to [minInterval] when something changes, and doubled up to [maxInterval] after each poll without change,
+ * so a parked fleet is polled rarely and a moving one closely.
+ * The stream ends with the error of a failed poll, use retryWhen to keep monitoring through the network losses
+ * @param xeeFleet the [XeeFleet] used to request the status
+ * @param fleetId the uuid of the fleet
+ * @param minInterval the minimum time in ms between two polls
+ * @param maxInterval the maximum time in ms between two polls
+ * @author Julien Cholin
+ * @since 4.2.0
+ */
+class FleetStatusMonitor @JvmOverloads constructor(private val xeeFleet: XeeFleet,
+                                                   private val fleetId: String,
+                                                   private val minInterval: Long = MIN_INTERVAL,
+                                                   private val maxInterval: Long = MAX_INTERVAL,
+                                                   private val scheduler: Scheduler = Schedulers.io()) {
+
+    companion object {
+        const val MIN_INTERVAL: Long = 10 * 1000
+        const val MAX_INTERVAL: Long = 2 * 60 * 1000
+    }
+
+    /**
+     * Vehicles changed since the previous poll
+     * @param changed the new status of the vehicles added or changed, all the vehicles on the first poll
+     * @param removed the ids of the vehicles which aren't in the fleet anymore
+     */
+    data class Delta(val changed: List<Status>, val removed: List<String>)
+
+    /**
+     * Starts polling on subscription, each subscriber has its own polling and its own previous snapshot
+     */
+    fun observe(): Observable<Delta> = Observable.defer {
+        val previousStatuses = HashMap<String, Status>()
+        var interval = minInterval
+
+        Observable.defer { xeeFleet.getStatus(fleetId) }
+                .map { fleetStatus -> diff(previousStatuses, fleetStatus.vehicles.orEmpty()) }
+                .doOnNext { delta ->
+                    interval = if (delta.changed.isEmpty() && delta.removed.isEmpty()) Math.min(maxInterval, interval * 2) else minInterval
+                }
+                .repeatWhen { polls -> polls.concatMap { Observable.timer(interval, TimeUnit.MILLISECONDS, scheduler) } }
+                .filter { delta -> delta.changed.isNotEmpty() || delta.removed.isNotEmpty() }
+    }.subscribeOn(scheduler)
+
+    /**
+     * Compares the new statuses with the previous ones, and replaces the previous ones by the new ones
+     */
+    private fun diff(previousStatuses: MutableMap<String, Status>, statuses: List<Status>): Delta {
+        val changed = ArrayList<Status>()
+        val seen = HashSet<String>(statuses.size * 2)
+        for (status in statuses) {
+            val vehicleId = status.vehicleId ?: continue
+            seen.add(vehicleId)
+            val previousStatus = previousStatuses.put(vehicleId, status)
+            if (previousStatus == null || hasChanged(previousStatus, status)) changed.add(status)
+        }
+
+        var removed: MutableList<String>? = null
+        if (seen.size < previousStatuses.size) {
+            val iterator = previousStatuses.keys.iterator()
+            while (iterator.hasNext()) {
+                val vehicleId = iterator.next()
+                if (vehicleId !in seen) {
+                    iterator.remove()
+                    if (removed == null) removed = ArrayList()
+                    removed.add(vehicleId)
+                }
+            }
+        }
+        return Delta(changed, removed ?: emptyList<String>())
+    }
+
+    /**
+     * The same updatedAt means nothing has changed, so the locations and the signals are only compared
+     * when the status has been updated, or when the API doesn't give the update date
+     */
+    private fun hasChanged(previousStatus: Status, status: Status): Boolean {
+        if (previousStatus.updatedAt != null && previousStatus.updatedAt == status.updatedAt) return false
+        return previousStatus.location != status.location
+                || previousStatus.signals != status.signals
+                || previousStatus.accelerometer != status.accelerometer
+    }
+}
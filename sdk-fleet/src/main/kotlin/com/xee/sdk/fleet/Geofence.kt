@@ -0,0 +1,103 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xee.sdk.fleet
+
+/**
+ * Geofence is an area watched by the [GeofenceEngine]. The areas are computed on a plane,
+ * so they must be small compared to the earth and mustn't cross the antimeridian
+ * @param id the unique id of the geofence
+ * @author Julien Cholin
+ * @since 4.2.0
+ */
+sealed class Geofence(val id: String) {
+
+    internal abstract val south: Double
+    internal abstract val west: Double
+    internal abstract val north: Double
+    internal abstract val east: Double
+
+    /**
+     * @return true if the point is inside the geofence
+     * @param latitude the latitude of the point in degrees
+     * @param longitude the longitude of the point in degrees
+     */
+    abstract fun contains(latitude: Double, longitude: Double): Boolean
+
+    /**
+     * Circular geofence
+     * @param latitude the latitude of the center in degrees
+     * @param longitude the longitude of the center in degrees
+     * @param radius the radius in meters
+     */
+    class Circle(id: String, val latitude: Double, val longitude: Double, val radius: Double) : Geofence(id) {
+        private val latitudeScale = METERS_PER_DEGREE
+        private val longitudeScale = METERS_PER_DEGREE * Math.max(MIN_COSINE, Math.cos(Math.toRadians(latitude)))
+
+        override val south = latitude - radius / latitudeScale
+        override val west = longitude - radius / longitudeScale
+        override val north = latitude + radius / latitudeScale
+        override val east = longitude + radius / longitudeScale
+
+        override fun contains(latitude: Double, longitude: Double): Boolean {
+            if (latitude < south || latitude > north || longitude < west || longitude > east) return false
+            val dy = (latitude - this.latitude) * latitudeScale
+            val dx = (longitude - this.longitude) * longitudeScale
+            return dx * dx + dy * dy <= radius * radius
+        }
+    }
+
+    /**
+     * Polygonal geofence, the last vertex is joined to the first one
+     * @param latitudes the latitudes of the vertices in degrees
+     * @param longitudes the longitudes of the vertices in degrees
+     */
+    class Polygon(id: String, private val latitudes: DoubleArray, private val longitudes: DoubleArray) : Geofence(id) {
+        override val south: Double
+        override val west: Double
+        override val north: Double
+        override val east: Double
+
+        init {
+            if (latitudes.size != longitudes.size) throw IllegalArgumentException("${latitudes.size} latitudes for ${longitudes.size} longitudes")
+            if (latitudes.size < 3) throw IllegalArgumentException("A polygon needs at least 3 vertices")
+            south = latitudes.min()!!
+            north = latitudes.max()!!
+            west = longitudes.min()!!
+            east = longitudes.max()!!
+        }
+
+        override fun contains(latitude: Double, longitude: Double): Boolean {
+            if (latitude < south || latitude > north || longitude < west || longitude > east) return false
+
+            // Ray casting: the point is inside if a ray from it crosses the edges an odd number of times
+            var inside = false
+            var j = latitudes.size - 1
+            for (i in 0 until latitudes.size) {
+                if ((latitudes[i] > latitude) != (latitudes[j] > latitude) &&
+                        longitude < (longitudes[j] - longitudes[i]) * (latitude - latitudes[i]) / (latitudes[j] - latitudes[i]) + longitudes[i]) {
+                    inside = !inside
+                }
+                j = i
+            }
+            return inside
+        }
+    }
+
+    private companion object {
+        const val METERS_PER_DEGREE = 111319.49
+        const val MIN_COSINE = 1e-6
+    }
+}
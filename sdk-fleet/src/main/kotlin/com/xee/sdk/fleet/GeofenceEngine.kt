@@ -0,0 +1,308 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xee.sdk.fleet
+
+import com.xee.sdk.fleet.model.Status
+import io.reactivex.Observable
+import io.reactivex.Scheduler
+import io.reactivex.schedulers.Schedulers
+import io.reactivex.subjects.PublishSubject
+import java.util.*
+import java.util.concurrent.TimeUnit
+
+/**
+ * GeofenceEngine computes the [GeofenceEvent]s of the vehicles from their successive [Status]es.
+ * The geofences are indexed in a grid of cells of [cellSize] degrees, so a position is only tested against the geofences
+ * overlapping its cell, and a vehicle which hasn't moved is not tested again. The engine keeps the geofences each vehicle is in.
+ * Since a parked vehicle doesn't send new statuses, its dwells are also checked every [dwellCheckInterval]
+ * @param dwellTime the time in ms a vehicle must stay in a geofence to emit a [GeofenceEvent.Type.DWELL], 0 to never emit it
+ * @param cellSize the size of the cells in degrees
+ * @param dwellCheckInterval the time in ms between two dwell checks of all the vehicles by [observe] and [observeStatuses]
+ * @param scheduler the [Scheduler] of the dwell checks, its clock is the local time of the engine
+ * @author Julien Cholin
+ * @since 4.2.0
+ */
+class GeofenceEngine @JvmOverloads constructor(private val dwellTime: Long = DWELL_TIME,
+                                               private val cellSize: Double = CELL_SIZE,
+                                               private val dwellCheckInterval: Long = DWELL_CHECK_INTERVAL,
+                                               private val scheduler: Scheduler = Schedulers.computation()) {
+
+    companion object {
+        const val DWELL_TIME: Long = 5 * 60 * 1000
+        const val CELL_SIZE = 0.05
+        const val DWELL_CHECK_INTERVAL: Long = 30 * 1000
+        private const val MAX_CELLS_PER_GEOFENCE = 256
+    }
+
+    private val geofences = HashMap<String, Geofence>()
+    private val cells = HashMap<Long, MutableList<Geofence>>()
+    /**
+     * The geofences covering too many cells are tested for every position instead of being put in all of them
+     */
+    private val largeGeofences = ArrayList<Geofence>()
+    private val vehicles = HashMap<String, VehicleState>()
+    /**
+     * The events which don't come from a status, like the ENTERs of the added geofences.
+     * They are only emitted to the current observers, [add] returns them to its caller
+     */
+    private val addedEvents = PublishSubject.create<GeofenceEvent>().toSerialized()
+
+    init {
+        if (cellSize <= 0) throw IllegalArgumentException("cellSize must be positive")
+    }
+
+    /**
+     * Watch a [Geofence], replacing the one with the same id. The tracked vehicles already inside it enter it now,
+     * the vehicles still inside the replaced geofence keep their stay
+     * @return the [GeofenceEvent.Type.ENTER]s of the tracked vehicles inside the geofence, also emitted by the [observe] and [observeStatuses]
+     * subscribed at the time of the call. They are not kept for the later subscribers, which would otherwise receive all the events
+     * of the direct calls made without any observer
+     */
+    fun add(geofence: Geofence): List<GeofenceEvent> {
+        val entered = synchronized(this) { index(geofence) }
+        // Emitted outside of the lock, the observers may call the engine from another thread
+        for (event in entered) addedEvents.onNext(event)
+        return entered
+    }
+
+    /**
+     * Stop watching a [Geofence], without emitting [GeofenceEvent.Type.EXIT] for the vehicles inside
+     * @param geofenceId the id of the [Geofence]
+     */
+    @Synchronized
+    fun remove(geofenceId: String) {
+        val geofence = geofences.remove(geofenceId) ?: return
+        if (!largeGeofences.remove(geofence)) {
+            for (row in rowOf(geofence.south)..rowOf(geofence.north)) {
+                for (column in columnOf(geofence.west)..columnOf(geofence.east)) {
+                    val cell = cellOf(row, column)
+                    val cellGeofences = cells[cell] ?: continue
+                    cellGeofences.remove(geofence)
+                    if (cellGeofences.isEmpty()) cells.remove(cell)
+                }
+            }
+        }
+        for (vehicle in vehicles.values) {
+            vehicle.enteredAt.remove(geofenceId)
+            vehicle.dwelled.remove(geofenceId)
+        }
+    }
+
+    /**
+     * Evaluate a new status of a vehicle
+     * @param status the [Status] of the vehicle, ignored without vehicle id or location
+     * @return the [GeofenceEvent]s triggered by this status, EXIT before ENTER
+     */
+    @Synchronized
+    fun evaluate(status: Status): List<GeofenceEvent> {
+        val vehicleId = status.vehicleId ?: return emptyList()
+        val location = status.location ?: return emptyList()
+        val date = status.updatedAt ?: location.date ?: Date(scheduler.now(TimeUnit.MILLISECONDS))
+        val vehicle = vehicles[vehicleId] ?: VehicleState().also { vehicles[vehicleId] = it }
+        vehicle.date = date.time
+        vehicle.receivedAt = scheduler.now(TimeUnit.MILLISECONDS)
+
+        var events: MutableList<GeofenceEvent>? = null
+        if (!vehicle.isAt(location.latitude, location.longitude)) {
+            vehicle.latitude = location.latitude
+            vehicle.longitude = location.longitude
+
+            val inside = HashSet<String>()
+            cells[cellOf(rowOf(location.latitude), columnOf(location.longitude))]?.let { collectContaining(it, location.latitude, location.longitude, inside) }
+            collectContaining(largeGeofences, location.latitude, location.longitude, inside)
+
+            val iterator = vehicle.enteredAt.keys.iterator()
+            while (iterator.hasNext()) {
+                val geofenceId = iterator.next()
+                if (geofenceId !in inside) {
+                    iterator.remove()
+                    vehicle.dwelled.remove(geofenceId)
+                    if (events == null) events = ArrayList()
+                    events.add(GeofenceEvent(GeofenceEvent.Type.EXIT, geofenceId, vehicleId, date))
+                }
+            }
+            for (geofenceId in inside) {
+                if (!vehicle.enteredAt.containsKey(geofenceId)) {
+                    vehicle.enteredAt[geofenceId] = date.time
+                    if (events == null) events = ArrayList()
+                    events.add(GeofenceEvent(GeofenceEvent.Type.ENTER, geofenceId, vehicleId, date))
+                }
+            }
+        }
+
+        // The dwell only depends on the time, so it's checked even when the vehicle hasn't moved
+        events = collectDwells(vehicleId, vehicle, date.time, events)
+        return events ?: emptyList<GeofenceEvent>()
+    }
+
+    /**
+     * Check the dwells of all the tracked vehicles, for the vehicles parked in a geofence which don't send new statuses.
+     * The time elapsed since the last status of a vehicle is added to its date, so the clock of the device doesn't matter.
+     * [observe] and [observeStatuses] call it every [dwellCheckInterval]
+     * @return the [GeofenceEvent.Type.DWELL]s reached since the last statuses
+     */
+    @Synchronized
+    fun checkDwells(): List<GeofenceEvent> {
+        if (dwellTime <= 0) return emptyList()
+        val now = scheduler.now(TimeUnit.MILLISECONDS)
+        var dwells: MutableList<GeofenceEvent>? = null
+        for ((vehicleId, vehicle) in vehicles) dwells = collectDwells(vehicleId, vehicle, vehicle.dateAt(now), dwells)
+        return dwells ?: emptyList<GeofenceEvent>()
+    }
+
+    /**
+     * Forget a vehicle, like a vehicle removed from the fleet, without emitting [GeofenceEvent.Type.EXIT]
+     * @param vehicleId the uuid of the vehicle
+     */
+    @Synchronized
+    fun forget(vehicleId: String) {
+        vehicles.remove(vehicleId)
+    }
+
+    /**
+     * @return the ids of the geofences the vehicle is in
+     */
+    @Synchronized
+    fun geofencesOf(vehicleId: String): Set<String> = vehicles[vehicleId]?.enteredAt?.keys?.let { HashSet(it) } ?: emptySet()
+
+    /**
+     * Emits the [GeofenceEvent]s of the statuses of a fleet, like the ones of [FleetStatusMonitor.observe],
+     * and the events of the geofences added while subscribed
+     * @param deltas the [FleetStatusMonitor.Delta]s of the fleet
+     */
+    fun observe(deltas: Observable<FleetStatusMonitor.Delta>): Observable<GeofenceEvent> =
+            deltas.publish<GeofenceEvent> { shared ->
+                Observable.merge(shared.concatMapIterable { delta ->
+                    for (vehicleId in delta.removed) forget(vehicleId)
+                    val events = ArrayList<GeofenceEvent>()
+                    for (status in delta.changed) events.addAll(evaluate(status))
+                    events
+                }, eventsUntil(shared))
+            }
+
+    /**
+     * Emits the [GeofenceEvent]s of successive statuses, like the ones of [XeeFleet.getVehicleStatus] polled,
+     * and the events of the geofences added while subscribed
+     * @param statuses the [Status]es of the vehicles
+     */
+    fun observeStatuses(statuses: Observable<Status>): Observable<GeofenceEvent> =
+            statuses.publish<GeofenceEvent> { shared ->
+                Observable.merge(shared.concatMapIterable { status -> evaluate(status) }, eventsUntil(shared))
+            }
+
+    /**
+     * The events which don't come from a status: the ENTERs of the added geofences and the periodic DWELLs,
+     * until the statuses complete
+     */
+    private fun eventsUntil(statuses: Observable<*>): Observable<GeofenceEvent> {
+        val dwells = if (dwellTime > 0 && dwellCheckInterval > 0) {
+            Observable.interval(dwellCheckInterval, dwellCheckInterval, TimeUnit.MILLISECONDS, scheduler).concatMapIterable { checkDwells() }
+        } else {
+            Observable.empty<GeofenceEvent>()
+        }
+        return Observable.merge(addedEvents, dwells).takeUntil(statuses.ignoreElements().andThen(Observable.just(Unit)))
+    }
+
+    private fun index(geofence: Geofence): List<GeofenceEvent> {
+        // The stays in the replaced geofence are kept for the vehicles still inside
+        val stays = HashMap<String, Long>()
+        val dwelled = HashSet<String>()
+        for ((vehicleId, vehicle) in vehicles) {
+            vehicle.enteredAt[geofence.id]?.let { stays[vehicleId] = it }
+            if (geofence.id in vehicle.dwelled) dwelled.add(vehicleId)
+        }
+        remove(geofence.id)
+        geofences[geofence.id] = geofence
+
+        val firstRow = rowOf(geofence.south)
+        val lastRow = rowOf(geofence.north)
+        val firstColumn = columnOf(geofence.west)
+        val lastColumn = columnOf(geofence.east)
+        if ((lastRow - firstRow + 1).toLong() * (lastColumn - firstColumn + 1) > MAX_CELLS_PER_GEOFENCE) {
+            largeGeofences.add(geofence)
+        } else {
+            for (row in firstRow..lastRow) {
+                for (column in firstColumn..lastColumn) {
+                    val cell = cellOf(row, column)
+                    val cellGeofences = cells[cell] ?: ArrayList<Geofence>().also { cells[cell] = it }
+                    cellGeofences.add(geofence)
+                }
+            }
+        }
+
+        // The vehicles are not evaluated again until they move, so the ones already inside enter the geofence now
+        val now = scheduler.now(TimeUnit.MILLISECONDS)
+        var entered: MutableList<GeofenceEvent>? = null
+        for ((vehicleId, vehicle) in vehicles) {
+            if (!geofence.contains(vehicle.latitude, vehicle.longitude)) continue
+            val enteredAt = stays[vehicleId]
+            if (enteredAt != null) {
+                vehicle.enteredAt[geofence.id] = enteredAt
+                if (vehicleId in dwelled) vehicle.dwelled.add(geofence.id)
+            } else {
+                val date = vehicle.dateAt(now)
+                vehicle.enteredAt[geofence.id] = date
+                if (entered == null) entered = ArrayList()
+                entered.add(GeofenceEvent(GeofenceEvent.Type.ENTER, geofence.id, vehicleId, Date(date)))
+            }
+        }
+        return entered ?: emptyList<GeofenceEvent>()
+    }
+
+    private fun collectDwells(vehicleId: String, vehicle: VehicleState, time: Long, events: MutableList<GeofenceEvent>?): MutableList<GeofenceEvent>? {
+        if (dwellTime <= 0) return events
+        var dwells = events
+        for ((geofenceId, enteredAt) in vehicle.enteredAt) {
+            if (time - enteredAt >= dwellTime && vehicle.dwelled.add(geofenceId)) {
+                if (dwells == null) dwells = ArrayList()
+                dwells.add(GeofenceEvent(GeofenceEvent.Type.DWELL, geofenceId, vehicleId, Date(time)))
+            }
+        }
+        return dwells
+    }
+
+    private fun collectContaining(candidates: List<Geofence>, latitude: Double, longitude: Double, inside: MutableSet<String>) {
+        for (geofence in candidates) if (geofence.contains(latitude, longitude)) inside.add(geofence.id)
+    }
+
+    private fun rowOf(latitude: Double): Int = Math.floor((latitude + 90) / cellSize).toInt()
+
+    private fun columnOf(longitude: Double): Int = Math.floor((longitude + 180) / cellSize).toInt()
+
+    private fun cellOf(row: Int, column: Int): Long = (row.toLong() shl 32) or (column.toLong() and 0xffffffffL)
+
+    private class VehicleState {
+        var latitude = Double.NaN
+        var longitude = Double.NaN
+        /**
+         * Date in ms of the last status, and local time in ms when it has been evaluated
+         */
+        var date = 0L
+        var receivedAt = 0L
+        /**
+         * Date in ms when the vehicle has entered each geofence it is in
+         */
+        val enteredAt = HashMap<String, Long>()
+        val dwelled = HashSet<String>()
+
+        fun isAt(latitude: Double, longitude: Double) = this.latitude == latitude && this.longitude == longitude
+
+        /**
+         * The date of the vehicle at a local time, assuming it hasn't sent any status since the last one
+         */
+        fun dateAt(now: Long) = date + Math.max(0, now - receivedAt)
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xee.sdk.fleet
+
+import java.util.*
+
+/**
+ * Event emitted by the [GeofenceEngine] when a vehicle enters, leaves or stays in a [Geofence]
+ * @param type the [Type] of the event
+ * @param geofenceId the id of the [Geofence]
+ * @param vehicleId the uuid of the vehicle
+ * @param date the date of the status which triggered the event, or the estimated date of the vehicle
+ *             for the events triggered by a new geofence or a dwell check
+ * @author Julien Cholin
+ * @since 4.2.0
+ */
+data class GeofenceEvent(val type: Type, val geofenceId: String, val vehicleId: String, val date: Date) {
+
+    enum class Type {
+        /**
+         * The vehicle has entered the geofence
+         */
+        ENTER,
+
+        /**
+         * The vehicle has left the geofence
+         */
+        EXIT,
+
+        /**
+         * The vehicle has stayed in the geofence during the dwell time of the [GeofenceEngine], emitted once per stay
+         */
+        DWELL
+    }
+}
@@ -0,0 +1,337 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.xee.sdk.fleet
+
+import com.xee.sdk.fleet.model.Loan
+import io.reactivex.Completable
+import io.reactivex.Observable
+import java.util.*
+
+/**
+ * LoanIndex indexes the [Loan]s of a fleet by vehicle and by driver, to find who was driving a vehicle at a given time
+ * without scanning the loans. Each timeline is kept sorted by start date, under a segment tree of the latest end dates,
+ * so a query costs O(log n) plus O(log n) per loan returned, however long or numerous the running loans are.
+ * Starting a loan after the others or ending one costs O(log n), the loans loaded in any order are sorted once on the next query.
+ * The index is filled from the loans endpoints and kept current by starting and ending the loans through it
+ * @author Julien Cholin
+ * @since 4.2.0
+ */
+class LoanIndex {
+
+    private val xeeFleet: XeeFleet?
+    private val fleetId: String
+    private val entries = HashMap<String, Entry>()
+    private val vehicleTimelines = HashMap<String, Timeline>()
+    private val driverTimelines = HashMap<String, Timeline>()
+
+    /**
+     * @param xeeFleet the [XeeFleet] used to request the loans
+     * @param fleetId the uuid of the fleet
+     */
+    constructor(xeeFleet: XeeFleet, fleetId: String) {
+        this.xeeFleet = xeeFleet
+        this.fleetId = fleetId
+    }
+
+    /**
+     * Index filled with [put] only, without requesting the loans
+     */
+    internal constructor() {
+        this.xeeFleet = null
+        this.fleetId = ""
+    }
+
+    //region [LOADING]
+    /**
+     * Load the loans of a vehicle into the index
+     * @param vehicleId the uuid of the vehicle
+     * @param from the beginning date of the search
+     * @param to the ending date of the search
+     */
+    @JvmOverloads
+    fun loadVehicleLoans(vehicleId: String, from: Date? = null, to: Date? = null): Completable =
+            fleet().getVehicleLoans(fleetId, vehicleId, from, to)
+                    .doOnNext { loans -> for (loan in loans) put(loan, vehicleId, loan.driver?.id) }
+                    .ignoreElements()
+
+    /**
+     * Load the loans of a driver into the index
+     * @param driverId the uuid of the driver
+     * @param from the beginning date of the search
+     * @param to the ending date of the search
+     */
+    @JvmOverloads
+    fun loadDriverLoans(driverId: String, from: Date? = null, to: Date? = null): Completable =
+            fleet().getDriverLoans(fleetId, driverId, from, to)
+                    .doOnNext { loans -> for (loan in loans) put(loan, loan.vehicle?.id, driverId) }
+                    .ignoreElements()
+
+    /**
+     * Start a loan with [XeeFleet.startLoan] and index it
+     * @param vehicleId the uuid of the vehicle
+     * @param driverId the uuid of the driver
+     */
+    fun startLoan(vehicleId: String, driverId: String): Observable<Loan> =
+            fleet().startLoan(fleetId, vehicleId, driverId)
+                    .doOnNext { loan -> put(loan, vehicleId, driverId) }
+
+    /**
+     * End a loan with [XeeFleet.endLoan] and end it in the index now
+     * @param loanId the uuid of the [Loan]
+     */
+    fun endLoan(loanId: String): Completable =
+            fleet().endLoan(fleetId, loanId)
+                    .doOnComplete { end(loanId, Date()) }
+    //endregion
+
+    //region [UPDATES]
+    /**
+     * Index a loan, or replace it if a loan with the same id is already indexed. The loans without start date are ignored
+     * @param loan the [Loan]
+     * @param vehicleId the uuid of the vehicle, null if unknown
+     * @param driverId the uuid of the driver, null if unknown
+     */
+    @JvmOverloads
+    @Synchronized
+    fun put(loan: Loan, vehicleId: String? = loan.vehicle?.id, driverId: String? = loan.driver?.id) {
+        val startedAt = loan.startedAt ?: return
+        val previousEntry = entries[loan.id]
+        // The loans of the list endpoints don't always embed the vehicle or the driver, so the known ids are kept
+        val entry = Entry(loan, vehicleId ?: previousEntry?.vehicleId, driverId ?: previousEntry?.driverId,
+                startedAt.time, loan.endedAt?.time ?: OPEN)
+        entries[loan.id] = entry
+        if (previousEntry != null && previousEntry.start == entry.start
+                && previousEntry.vehicleId == entry.vehicleId && previousEntry.driverId == entry.driverId) {
+            // Only the end of the loan may have changed, like an ended loan, so it keeps its place in the timelines
+            entry.vehicleId?.let { vehicleTimelines[it]?.replace(previousEntry, entry) }
+            entry.driverId?.let { driverTimelines[it]?.replace(previousEntry, entry) }
+        } else {
+            if (previousEntry != null) unlink(previousEntry)
+            link(entry)
+        }
+    }
+
+    /**
+     * End an indexed loan. The indexed loan is replaced by an ended copy, the [Loan] given to [put] is not modified
+     * @param loanId the uuid of the [Loan]
+     * @param endedAt the end date of the loan
+     */
+    @Synchronized
+    fun end(loanId: String, endedAt: Date) {
+        val entry = entries[loanId] ?: return
+        put(entry.loan.copy(endedAt = endedAt), entry.vehicleId, entry.driverId)
+    }
+
+    /**
+     * Remove all the loans
+     */
+    @Synchronized
+    fun clear() {
+        entries.clear()
+        vehicleTimelines.clear()
+        driverTimelines.clear()
+    }
+    //endregion
+
+    //region [QUERIES]
+    /**
+     * @return the loan of the vehicle running at the given date, the latest started one if several overlap, null if none
+     */
+    @Synchronized
+    fun vehicleLoanAt(vehicleId: String, date: Date): Loan? = vehicleTimelines[vehicleId]?.at(date.time)
+
+    /**
+     * @return the uuid of the driver of the vehicle at the given date, null if the vehicle wasn't loaned
+     */
+    @Synchronized
+    fun driverIdAt(vehicleId: String, date: Date): String? = vehicleLoanAt(vehicleId, date)?.let { entries[it.id]?.driverId }
+
+    /**
+     * @return the loan of the driver running at the given date, the latest started one if several overlap, null if none
+     */
+    @Synchronized
+    fun driverLoanAt(driverId: String, date: Date): Loan? = driverTimelines[driverId]?.at(date.time)
+
+    /**
+     * @return the loans of the vehicle overlapping the period, ordered by start date
+     * @param from the beginning of the period, inclusive
+     * @param to the end of the period, exclusive
+     */
+    @Synchronized
+    fun vehicleLoans(vehicleId: String, from: Date, to: Date): List<Loan> =
+            vehicleTimelines[vehicleId]?.between(from.time, to.time) ?: emptyList()
+
+    /**
+     * @return the loans of the driver overlapping the period, ordered by start date
+     * @param from the beginning of the period, inclusive
+     * @param to the end of the period, exclusive
+     */
+    @Synchronized
+    fun driverLoans(driverId: String, from: Date, to: Date): List<Loan> =
+            driverTimelines[driverId]?.between(from.time, to.time) ?: emptyList()
+    //endregion
+
+    private fun fleet(): XeeFleet = xeeFleet ?: throw IllegalStateException("This index can't request the loans")
+
+    private fun link(entry: Entry) {
+        entry.vehicleId?.let { (vehicleTimelines[it] ?: Timeline().also { timeline -> vehicleTimelines[it] = timeline }).add(entry) }
+        entry.driverId?.let { (driverTimelines[it] ?: Timeline().also { timeline -> driverTimelines[it] = timeline }).add(entry) }
+    }
+
+    private fun unlink(entry: Entry) {
+        entry.vehicleId?.let { vehicleTimelines[it]?.remove(entry) }
+        entry.driverId?.let { driverTimelines[it]?.remove(entry) }
+    }
+
+    private class Entry(val loan: Loan, val vehicleId: String?, val driverId: String?, val start: Long, val end: Long)
+
+    /**
+     * Loans of a vehicle or a driver, sorted by start date. The segment tree keeps the latest end of each range of loans,
+     * so the searches skip the ranges which ended before the queried time. A loan added after the others or replaced
+     * at the same start updates the tree in place, the other changes rebuild it on the next query
+     */
+    private class Timeline {
+        private val entries = ArrayList<Entry>()
+        private var sorted = true
+        private var built = true
+        private var capacity = 1
+        /**
+         * tree[1] is the root, the children of node i are 2i and 2i+1 and the leaf of the loan i is capacity + i
+         */
+        private var tree = longArrayOf(Long.MIN_VALUE, Long.MIN_VALUE)
+
+        fun add(entry: Entry) {
+            if (entries.isNotEmpty() && entries[entries.size - 1].start > entry.start) sorted = false
+            entries.add(entry)
+            if (built && sorted && entries.size <= capacity) update(entries.size - 1) else built = false
+        }
+
+        fun remove(entry: Entry) {
+            val index = indexOf(entry)
+            if (index < 0) return
+            // Removing keeps the loans sorted, only the tree has to be rebuilt
+            entries.removeAt(index)
+            built = false
+        }
+
+        /**
+         * Replace a loan by another one with the same start date
+         */
+        fun replace(entry: Entry, newEntry: Entry) {
+            val index = indexOf(entry)
+            if (index < 0) {
+                add(newEntry)
+                return
+            }
+            entries[index] = newEntry
+            if (built) update(index)
+        }
+
+        fun at(time: Long): Loan? {
+            build()
+            val index = lastEndingAfter(1, 0, capacity, upperBound(time), time)
+            return if (index >= 0) entries[index].loan else null
+        }
+
+        fun between(from: Long, to: Long): List<Loan> {
+            build()
+            val loans = ArrayList<Loan>()
+            collectEndingAfter(1, 0, capacity, upperBound(to - 1), from, loans)
+            return loans
+        }
+
+        /**
+         * @return the index of the last loan before limit ending after the given time, -1 if none
+         */
+        private fun lastEndingAfter(node: Int, nodeFrom: Int, nodeTo: Int, limit: Int, time: Long): Int {
+            if (nodeFrom >= limit || tree[node] <= time) return -1
+            if (nodeTo - nodeFrom == 1) return nodeFrom
+            val middle = (nodeFrom + nodeTo) ushr 1
+            val index = lastEndingAfter(2 * node + 1, middle, nodeTo, limit, time)
+            return if (index >= 0) index else lastEndingAfter(2 * node, nodeFrom, middle, limit, time)
+        }
+
+        /**
+         * Collect the loans before limit ending after the given time, in order
+         */
+        private fun collectEndingAfter(node: Int, nodeFrom: Int, nodeTo: Int, limit: Int, time: Long, loans: MutableList<Loan>) {
+            if (nodeFrom >= limit || tree[node] <= time) return
+            if (nodeTo - nodeFrom == 1) {
+                loans.add(entries[nodeFrom].loan)
+                return
+            }
+            val middle = (nodeFrom + nodeTo) ushr 1
+            collectEndingAfter(2 * node, nodeFrom, middle, limit, time, loans)
+            collectEndingAfter(2 * node + 1, middle, nodeTo, limit, time, loans)
+        }
+
+        /**
+         * @return the index of the first loan started after the given time
+         */
+        private fun upperBound(time: Long): Int {
+            var low = 0
+            var high = entries.size
+            while (low < high) {
+                val middle = (low + high) ushr 1
+                if (entries[middle].start <= time) low = middle + 1 else high = middle
+            }
+            return low
+        }
+
+        private fun indexOf(entry: Entry): Int {
+            if (!sorted) return entries.indexOf(entry)
+            // The loans starting at the same time are scanned backward from the last one
+            var index = upperBound(entry.start) - 1
+            while (index >= 0 && entries[index].start == entry.start) {
+                if (entries[index] === entry) return index
+                index--
+            }
+            return -1
+        }
+
+        private fun update(index: Int) {
+            var node = capacity + index
+            tree[node] = entries[index].end
+            node = node shr 1
+            while (node >= 1) {
+                tree[node] = Math.max(tree[2 * node], tree[2 * node + 1])
+                node = node shr 1
+            }
+        }
+
+        private fun build() {
+            if (built) return
+            if (!sorted) {
+                entries.sortWith(Comparator { a, b -> java.lang.Long.compare(a.start, b.start) })
+                sorted = true
+            }
+            capacity = 1
+            while (capacity < entries.size) capacity = capacity shl 1
+            tree = LongArray(2 * capacity)
+            Arrays.fill(tree, Long.MIN_VALUE)
+            for (i in 0 until entries.size) tree[capacity + i] = entries[i].end
+            for (node in capacity - 1 downTo 1) tree[node] = Math.max(tree[2 * node], tree[2 * node + 1])
+            built = true
+        }
+    }
+
+    private companion object {
+        /**
+         * End of the running loans
+         */
+        const val OPEN = Long.MAX_VALUE
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.xee.sdk.fleet
+
+import com.xee.sdk.fleet.model.Location
+import com.xee.sdk.fleet.model.Status
+import java.util.*
+import java.util.concurrent.locks.ReentrantReadWriteLock
+import kotlin.concurrent.read
+import kotlin.concurrent.write
+
+/**
+ * SpatialIndex indexes values by position in a grid of cells of [cellSize] degrees, to find the values in a map viewport
+ * or the nearest ones to a point without scanning all of them. The values are added, moved and removed one by one,
+ * so the index can follow the [FleetStatusMonitor.Delta]s. It is thread safe, the queries run concurrently
+ * @param cellSize the size of the cells in degrees, about the size of the usual viewports: 0.01 is about 1km
+ * @author Julien Cholin
+ * @since 4.2.0
+ */
+class SpatialIndex<K, V> @JvmOverloads constructor(private val cellSize: Double = CELL_SIZE) {
+
+    companion object {
+        const val CELL_SIZE = 0.01
+        private const val EARTH_RADIUS = 6371008.8
+        private const val METERS_PER_DEGREE = 111319.49
+    }
+
+    private val rows = Math.ceil(180 / cellSize).toInt()
+    private val columns = Math.ceil(360 / cellSize).toInt()
+    private val entries = HashMap<K, Entry<V>>()
+    private val cells = HashMap<Long, MutableList<Entry<V>>>()
+    private val lock = ReentrantReadWriteLock()
+
+    init {
+        if (cellSize <= 0 || cellSize > 180) throw IllegalArgumentException("cellSize must be in ]0, 180]")
+    }
+
+    /**
+     * Number of values in the index
+     */
+    val size: Int
+        get() = lock.read { entries.size }
+
+    /**
+     * Add a value, or move it if its key is already indexed
+     * @param key the key of the value, like the id of a vehicle
+     * @param latitude the latitude in degrees
+     * @param longitude the longitude in degrees
+     * @param value the value
+     */
+    fun put(key: K, latitude: Double, longitude: Double, value: V) {
+        val cell = cellOf(rowOf(latitude), columnOf(longitude))
+        lock.write {
+            val previousEntry = entries[key]
+            if (previousEntry != null && previousEntry.cell != cell) removeFromCell(previousEntry)
+            val entry = Entry(latitude, longitude, value, cell)
+            entries[key] = entry
+            val cellEntries = cells[cell] ?: ArrayList<Entry<V>>().also { cells[cell] = it }
+            if (previousEntry != null && previousEntry.cell == cell) {
+                cellEntries[cellEntries.indexOf(previousEntry)] = entry
+            } else {
+                cellEntries.add(entry)
+            }
+        }
+    }
+
+    /**
+     * Remove a value
+     * @param key the key of the value
+     * @return the value removed, null if the key wasn't indexed
+     */
+    fun remove(key: K): V? = lock.write {
+        entries.remove(key)?.let { entry ->
+            removeFromCell(entry)
+            entry.value
+        }
+    }
+
+    /**
+     * @return the value of the key, null if the key isn't indexed
+     */
+    operator fun get(key: K): V? = lock.read { entries[key]?.value }
+
+    /**
+     * Remove all the values
+     */
+    fun clear() {
+        lock.write {
+            entries.clear()
+            cells.clear()
+        }
+    }
+
+    /**
+     * Returns the values inside a bounding box, like the viewport of a map. The box may cross the antimeridian
+     * @param south the southern latitude in degrees
+     * @param west the western longitude in degrees, greater than [east] if the box crosses the antimeridian
+     * @param north the northern latitude in degrees
+     * @param east the eastern longitude in degrees
+     */
+    fun within(south: Double, west: Double, north: Double, east: Double): List<V> = lock.read {
+        val values = ArrayList<V>()
+        val firstRow = rowOf(south)
+        val lastRow = rowOf(north)
+        val firstColumn = columnOf(west)
+        var lastColumn = columnOf(east)
+        if (west > east) lastColumn += columns
+        val cellCount = (lastRow - firstRow + 1).toLong() * (lastColumn - firstColumn + 1)
+
+        if (cellCount > entries.size) {
+            // The box is larger than the indexed area, scanning the values is cheaper than visiting the empty cells
+            for (entry in entries.values) if (entry.isWithin(south, west, north, east)) values.add(entry.value)
+        } else {
+            for (row in firstRow..lastRow) {
+                for (column in firstColumn..lastColumn) {
+                    val cellEntries = cells[cellOf(row, column % columns)] ?: continue
+                    for (entry in cellEntries) if (entry.isWithin(south, west, north, east)) values.add(entry.value)
+                }
+            }
+        }
+        values
+    }
+
+    /**
+     * Returns the nearest values to a point, ordered by distance
+     * @param latitude the latitude of the point in degrees
+     * @param longitude the longitude of the point in degrees
+     * @param count the maximum number of values returned
+     */
+    fun nearest(latitude: Double, longitude: Double, count: Int): List<V> = lock.read {
+        if (count <= 0 || entries.isEmpty()) return@read emptyList<V>()
+
+        val candidates = ArrayList<Candidate<V>>()
+        val centerRow = rowOf(latitude)
+        val centerColumn = columnOf(longitude)
+        var ring = 0
+        var visited = 0
+        while (visited < entries.size) {
+            val side = 2L * ring + 1
+            if (side >= columns || side * side > entries.size) {
+                // Like in within(), once the searched area has more cells than there are values, or wraps around the earth,
+                // scanning the values is cheaper than visiting the empty cells
+                candidates.clear()
+                for (entry in entries.values) candidates.add(Candidate(distance(latitude, longitude, entry), entry.value))
+                break
+            }
+            for (row in centerRow - ring..centerRow + ring) {
+                if (row < 0 || row >= rows) continue
+                val onEdge = row == centerRow - ring || row == centerRow + ring
+                var column = centerColumn - ring
+                while (column <= centerColumn + ring) {
+                    val cellEntries = cells[cellOf(row, wrap(column))]
+                    if (cellEntries != null) {
+                        visited += cellEntries.size
+                        for (entry in cellEntries) candidates.add(Candidate(distance(latitude, longitude, entry), entry.value))
+                    }
+                    // Inside the ring, only the first and the last columns are new
+                    column += if (onEdge || column == centerColumn + ring || ring == 0) 1 else 2 * ring
+                }
+            }
+
+            // The values outside the ring are at least ring cells away, so the search stops when enough values are nearer
+            if (candidates.size >= count) {
+                candidates.sortBy { it.distance }
+                if (candidates[count - 1].distance <= ring * minCellMeters(latitude, ring)) break
+            }
+            ring++
+        }
+
+        candidates.sortBy { it.distance }
+        val values = ArrayList<V>(Math.min(count, candidates.size))
+        for (i in 0 until Math.min(count, candidates.size)) values.add(candidates[i].value)
+        values
+    }
+
+    private fun removeFromCell(entry: Entry<V>) {
+        val cellEntries = cells[entry.cell] ?: return
+        cellEntries.remove(entry)
+        if (cellEntries.isEmpty()) cells.remove(entry.cell)
+    }
+
+    private fun rowOf(latitude: Double): Int = Math.max(0, Math.min(rows - 1, Math.floor((latitude + 90) / cellSize).toInt()))
+
+    private fun columnOf(longitude: Double): Int = Math.max(0, Math.min(columns - 1, Math.floor((longitude + 180) / cellSize).toInt()))
+
+    /**
+     * The column of the ring around the antimeridian
+     */
+    private fun wrap(column: Int): Int = ((column % columns) + columns) % columns
+
+    private fun cellOf(row: Int, column: Int): Long = (row.toLong() shl 32) or column.toLong()
+
+    /**
+     * The smallest side of the cells of a ring, the cells are narrower far from the equator
+     */
+    private fun minCellMeters(latitude: Double, ring: Int): Double {
+        val farthestLatitude = Math.min(90.0, Math.abs(latitude) + (ring + 1) * cellSize)
+        return cellSize * METERS_PER_DEGREE * Math.cos(Math.toRadians(farthestLatitude))
+    }
+
+    /**
+     * Haversine distance in meters between a point and an entry
+     */
+    private fun distance(latitude: Double, longitude: Double, entry: Entry<V>): Double {
+        val latitudeDelta = Math.toRadians(entry.latitude - latitude)
+        val longitudeDelta = Math.toRadians(entry.longitude - longitude)
+        val a = Math.sin(latitudeDelta / 2) * Math.sin(latitudeDelta / 2) +
+                Math.cos(Math.toRadians(latitude)) * Math.cos(Math.toRadians(entry.latitude)) *
+                Math.sin(longitudeDelta / 2) * Math.sin(longitudeDelta / 2)
+        return 2 * EARTH_RADIUS * Math.asin(Math.min(1.0, Math.sqrt(a)))
+    }
+
+    private class Entry<out V>(val latitude: Double, val longitude: Double, val value: V, val cell: Long) {
+        fun isWithin(south: Double, west: Double, north: Double, east: Double): Boolean {
+            if (latitude < south || latitude > north) return false
+            return if (west <= east) longitude in west..east else longitude >= west || longitude <= east
+        }
+    }
+
+    private class Candidate<out V>(val distance: Double, val value: V)
+}
+
+/**
+ * Index the vehicles by their last location, or move them if they are already indexed.
+ * The vehicles without location are removed from the index
+ * @param statuses the [Status]es of the vehicles
+ */
+fun SpatialIndex<String, Status>.update(statuses: List<Status>) {
+    for (status in statuses) {
+        val vehicleId = status.vehicleId ?: continue
+        val location = status.location
+        if (location == null) remove(vehicleId) else put(vehicleId, location.latitude, location.longitude, status)
+    }
+}
+
+/**
+ * Apply the changes of a [FleetStatusMonitor], to keep the index of a fleet up to date
+ * @param delta the [FleetStatusMonitor.Delta]
+ */
+fun SpatialIndex<String, Status>.update(delta: FleetStatusMonitor.Delta) {
+    update(delta.changed)
+    for (vehicleId in delta.removed) remove(vehicleId)
+}
+
+/**
+ * Index historical locations by their position in the list
+ * @param cellSize the size of the cells in degrees
+ */
+@JvmOverloads
+fun List<Location>.toSpatialIndex(cellSize: Double = SpatialIndex.CELL_SIZE): SpatialIndex<Int, Location> {
+    val index = SpatialIndex<Int, Location>(cellSize)
+    forEachIndexed { position, location -> index.put(position, location.latitude, location.longitude, location) }
+    return index
+}
@@ -18,9 +18,15 @@ package com.xee.sdk.fleet
 
 import com.google.gson.GsonBuilder
 import com.xee.sdk.core.auth.XeeAuth
+import com.xee.sdk.core.common.CoalescingCallAdapterFactory
 import com.xee.sdk.core.common.DateDeserializer
 import com.xee.sdk.core.common.HttpHeaders
 import com.xee.sdk.core.common.XeeEnv
+import com.xee.sdk.core.common.XeeHttpClient
+import com.xee.sdk.core.common.geo.Polyline
+import com.xee.sdk.core.common.geo.Simplification
+import com.xee.sdk.core.common.governor.GovernedCallAdapterFactory
+import com.xee.sdk.core.common.metrics.MetricsConverterFactory
 import com.xee.sdk.core.common.interceptor.LogRequestInterceptor
 import com.xee.sdk.core.common.interceptor.ApiInterceptor
 import com.xee.sdk.core.common.model.buildThrowableError
@@ -28,12 +34,11 @@ import com.xee.sdk.fleet.endpoint.FleetsEndpoint
 import com.xee.sdk.fleet.endpoint.TripsEndpoint
 import com.xee.sdk.fleet.endpoint.VehiclesEndpoint
 import com.xee.sdk.fleet.model.*
+import com.xee.sdk.fleet.model.adapter.registerModelTypeAdapters
 import io.reactivex.Completable
 import io.reactivex.Observable
-import okhttp3.OkHttpClient
 import retrofit2.Converter
 import retrofit2.Retrofit
-import retrofit2.adapter.rxjava2.RxJava2CallAdapterFactory
 import retrofit2.converter.gson.GsonConverterFactory
 import retrofit2.http.Path
 import java.text.SimpleDateFormat
@@ -79,7 +84,10 @@ class XeeFleet @JvmOverloads constructor(environment: XeeEnv, private val enable
 
     init {
         ENABLE_LOG = enableLog
-        CONVERTER_FACTORY = GsonConverterFactory.create(GsonBuilder().registerTypeAdapter(Date::class.java, DateDeserializer(ENABLE_LOG)).create())
+        CONVERTER_FACTORY = GsonConverterFactory.create(GsonBuilder()
+                .registerTypeAdapter(Date::class.java, DateDeserializer(ENABLE_LOG))
+                .registerModelTypeAdapters()
+                .create())
         initFleetApiEndpoint()
     }
 
@@ -88,7 +96,7 @@ class XeeFleet @JvmOverloads constructor(environment: XeeEnv, private val enable
      */
     @Suppress("NULLABILITY_MISMATCH_BASED_ON_JAVA_ANNOTATIONS")
     private fun initFleetApiEndpoint() {
-        val apiClientBuilder = OkHttpClient.Builder()
+        val apiClientBuilder = XeeHttpClient[xeeEnv].newBuilder()
                 .addInterceptor { chain ->
                     val token = xeeEnv.tokenStorage?.get()
                     val requestBuilder = chain.request().newBuilder()
@@ -106,8 +114,8 @@ class XeeFleet @JvmOverloads constructor(environment: XeeEnv, private val enable
         val apiRetrofit = Retrofit.Builder()
                 .baseUrl(String.format(Locale.FRANCE, ROUTE_BASE, xeeEnv.environment))
                 .client(apiClientBuilder.build())
-                .addCallAdapterFactory(RxJava2CallAdapterFactory.create())
-                .addConverterFactory(CONVERTER_FACTORY)
+                .addCallAdapterFactory(CoalescingCallAdapterFactory(GovernedCallAdapterFactory.create(xeeEnv.rateLimits, xeeEnv.metrics)))
+                .addConverterFactory(xeeEnv.metrics?.let { MetricsConverterFactory(CONVERTER_FACTORY, it) } ?: CONVERTER_FACTORY)
                 .build()
 
         fleetsEndpoint = apiRetrofit.create<FleetsEndpoint>(FleetsEndpoint::class.java)
@@ -147,6 +155,19 @@ class XeeFleet @JvmOverloads constructor(environment: XeeEnv, private val enable
     fun getFleetVehicles(fleetId: String):Observable<List<Vehicle>> =
             handleObservableError(fleetsEndpoint?.getFleetVehicles(fleetId))
 
+    /**
+     * Returns the last status of each vehicle of the fleet
+     * @param fleetId the uuid of the [Fleet]
+     */
+    fun getStatus(fleetId: String): Observable<FleetStatus> =
+            handleObservableError(fleetsEndpoint?.getStatus(fleetId))
+
+    /**
+     * Polls the status of the fleet and emits only the vehicles whose status has changed, see [FleetStatusMonitor]
+     * @param fleetId the uuid of the [Fleet]
+     */
+    fun monitorStatus(fleetId: String): Observable<FleetStatusMonitor.Delta> = FleetStatusMonitor(this, fleetId).observe()
+
     /**
      * Returns loans of a driver of the fleet
      * @param fleetId the uuid of the [Fleet]
@@ -259,6 +280,17 @@ class XeeFleet @JvmOverloads constructor(environment: XeeEnv, private val enable
         return handleObservableError(tripsEndpoint?.getTripLocations(tripId, optionalParameters))
     }
 
+    /**
+     * Returns the geometry of the trip as a [Polyline], simplified to draw it at a given zoom level.
+     * It is much lighter than the locations to keep in memory, and can be stored with [Polyline.encode]
+     * @param tripId the uuid of the [Trip]
+     * @param tolerance the tolerance in meters of the simplification, see [Polyline.toleranceAtZoom]. 0 keeps all the points
+     * @param simplification the [Simplification] algorithm
+     */
+    @JvmOverloads
+    fun getTripPolyline(tripId: String, tolerance: Double = 0.0, simplification: Simplification = Simplification.DOUGLAS_PEUCKER): Observable<Polyline> =
+            getTripLocations(tripId).map { locations -> locations.toPolyline().simplify(tolerance, simplification) }
+
     //endregion
 
     //region [VEHICLE]
@@ -16,6 +16,7 @@
 
 package com.xee.sdk.fleet.endpoint
 
+import com.xee.sdk.core.common.HttpHeaders
 import com.xee.sdk.fleet.model.*
 import io.reactivex.Completable
 import io.reactivex.Observable
@@ -47,6 +48,7 @@ interface FleetsEndpoint {
         const val LOAN_ID = "loanId"
     }
 
+    @Headers(HttpHeaders.CACHEABLE)
     @GET(Routes.FLEETS_MINE)
     fun getMyFleets(): Observable<List<Fleet>>
 
@@ -56,6 +58,7 @@ interface FleetsEndpoint {
     @GET(Routes.FLEET_DRIVERS_ME)
     fun getDriver(@Path(Parameters.FLEET_ID) fleetId: String): Observable<User>
 
+    @Headers(HttpHeaders.CACHEABLE)
     @GET(Routes.FLEET_VEHICLES)
     fun getFleetVehicles(@Path(Parameters.FLEET_ID) fleetId: String): Observable<List<Vehicle>>
 
@@ -74,6 +77,7 @@ interface FleetsEndpoint {
     @GET(Routes.FLEET_STATUS)
     fun getStatus(@Path(Parameters.FLEET_ID) fleetId: String): Observable<FleetStatus>
 
+    @Headers(HttpHeaders.CACHEABLE)
     @GET(Routes.FLEET_TAGS)
     fun getTags(@Path(Parameters.FLEET_ID) fleetId: String): Observable<List<Tag>>
 
@@ -26,7 +26,7 @@ import java.util.*
  * @author Julien Cholin
  * @since 4.0.0
  */
-data class Signal @JvmOverloads constructor(@SerializedName("name") var name: String,
+data class Signal @JvmOverloads constructor(@SerializedName("name") var name: String?,
                                             @SerializedName("value") var value: Double,
                                             @SerializedName("date") var date: Date? = null) : Parcelable {
 
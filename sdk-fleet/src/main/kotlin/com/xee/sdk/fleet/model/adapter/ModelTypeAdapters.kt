@@ -0,0 +1,95 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.xee.sdk.fleet.model.adapter
+
+import com.google.gson.GsonBuilder
+import com.google.gson.TypeAdapter
+import com.google.gson.stream.JsonReader
+import com.google.gson.stream.JsonWriter
+import com.xee.sdk.core.common.accelerometerValue
+import com.xee.sdk.core.common.locationValue
+import com.xee.sdk.core.common.nextAccelerometerOrNull
+import com.xee.sdk.core.common.nextLocationOrNull
+import com.xee.sdk.core.common.nextSignalOrNull
+import com.xee.sdk.core.common.signalValue
+import com.xee.sdk.fleet.model.Accelerometer
+import com.xee.sdk.fleet.model.Location
+import com.xee.sdk.fleet.model.Signal
+import java.io.IOException
+
+/**
+ * Streaming type adapters of the models returned by thousands, they replace the reflective
+ * adapters of Gson which are slow to build on first use and allocate a lot per object.
+ * The fields are read and written by the helpers of JsonStreams, shared with the other modules
+ * @author Julien Cholin
+ * @since 4.2.0
+ */
+
+/**
+ * Register the streaming type adapters of the models
+ */
+fun GsonBuilder.registerModelTypeAdapters(): GsonBuilder = this
+        .registerTypeAdapter(Signal::class.java, SignalTypeAdapter())
+        .registerTypeAdapter(Location::class.java, LocationTypeAdapter())
+        .registerTypeAdapter(Accelerometer::class.java, AccelerometerTypeAdapter())
+
+/**
+ * [TypeAdapter] of [Signal]
+ */
+class SignalTypeAdapter : TypeAdapter<Signal>() {
+
+    @Throws(IOException::class)
+    override fun write(writer: JsonWriter, signal: Signal?) {
+        if (signal == null) writer.nullValue() else writer.signalValue(signal.name, signal.value, signal.date)
+    }
+
+    @Throws(IOException::class)
+    override fun read(reader: JsonReader): Signal? = reader.nextSignalOrNull(::Signal)
+}
+
+/**
+ * [TypeAdapter] of [Location]
+ */
+class LocationTypeAdapter : TypeAdapter<Location>() {
+
+    @Throws(IOException::class)
+    override fun write(writer: JsonWriter, location: Location?) {
+        if (location == null) {
+            writer.nullValue()
+        } else {
+            writer.locationValue(location.latitude, location.longitude, location.altitude, location.heading,
+                    location.street, location.city, location.country, location.date)
+        }
+    }
+
+    @Throws(IOException::class)
+    override fun read(reader: JsonReader): Location? = reader.nextLocationOrNull(::Location)
+}
+
+/**
+ * [TypeAdapter] of [Accelerometer]
+ */
+class AccelerometerTypeAdapter : TypeAdapter<Accelerometer>() {
+
+    @Throws(IOException::class)
+    override fun write(writer: JsonWriter, accelerometer: Accelerometer?) {
+        if (accelerometer == null) writer.nullValue() else writer.accelerometerValue(accelerometer.x, accelerometer.y, accelerometer.z, accelerometer.date)
+    }
+
+    @Throws(IOException::class)
+    override fun read(reader: JsonReader): Accelerometer? = reader.nextAccelerometerOrNull(::Accelerometer)
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.xee.sdk.fleet
+
+import com.xee.sdk.fleet.model.Behavior
+import com.xee.sdk.fleet.model.Trip
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotSame
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.util.*
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+class BehaviorAnalyticsTest {
+
+    @Test
+    fun merge_concurrently() {
+        val merged = BehaviorAnalytics(UTC)
+        val parts = (0 until PARTS).map { part -> analytics(trips("part$part", TRIPS)) }
+        val executor = Executors.newFixedThreadPool(PARTS)
+        val start = CountDownLatch(1)
+        try {
+            val futures = parts.map { part ->
+                executor.submit(Callable {
+                    start.await()
+                    merged.merge(part)
+                })
+            }
+            start.countDown()
+            for (future in futures) future.get(TIMEOUT, TimeUnit.SECONDS)
+        } finally {
+            executor.shutdownNow()
+        }
+
+        assertRollup(merged.driver(DRIVER), PARTS * TRIPS)
+        assertRollup(merged.vehicle(VEHICLE), PARTS * TRIPS)
+        // The parts are not modified
+        for (part in parts) assertRollup(part.driver(DRIVER), TRIPS)
+    }
+
+    @Test(timeout = TIMEOUT * 1000)
+    fun merge_intoEachOther() {
+        val first = analytics(trips("first", TRIPS))
+        val second = analytics(trips("second", TRIPS))
+        val start = CountDownLatch(1)
+        val threads = listOf(Thread { start.await(); first.merge(second) }, Thread { start.await(); second.merge(first) })
+        for (thread in threads) thread.start()
+        start.countDown()
+        for (thread in threads) thread.join()
+
+        // Each one has copied the other either before or after the other merge
+        val firstTrips = first.driver(DRIVER)!!.trips
+        val secondTrips = second.driver(DRIVER)!!.trips
+        assertTrue(firstTrips == 2 * TRIPS && secondTrips in listOf(2 * TRIPS, 3 * TRIPS) ||
+                secondTrips == 2 * TRIPS && firstTrips == 3 * TRIPS)
+    }
+
+    @Test
+    fun compute_eachSubscriptionHasItsOwnSeed() {
+        val computed = BehaviorAnalytics.compute(trips("trip", PARTS * TRIPS), { DRIVER }, PARTS, UTC)
+        val first = computed.blockingGet()
+        val second = computed.blockingGet()
+
+        assertNotSame(first, second)
+        assertRollup(first.driver(DRIVER), PARTS * TRIPS)
+        assertRollup(second.driver(DRIVER), PARTS * TRIPS)
+    }
+
+    @Test
+    fun compute_countsDuplicatedTripsOnce() {
+        val trips = trips("trip", TRIPS)
+        val computed = BehaviorAnalytics.compute(trips + trips, { DRIVER }, PARTS, UTC).blockingGet()
+        assertRollup(computed.driver(DRIVER), TRIPS)
+    }
+
+    private fun assertRollup(rollup: BehaviorRollup?, trips: Int) {
+        assertEquals(trips, rollup!!.trips)
+        assertEquals(trips * DISTANCE, rollup.distance, 1e-6)
+        assertEquals(trips, rollup.count(Behavior.SPEED_LIMIT))
+        assertEquals(trips, rollup.hourHistogram(Behavior.SPEED_LIMIT)[HOUR])
+    }
+
+    private fun analytics(trips: List<Trip>): BehaviorAnalytics {
+        val analytics = BehaviorAnalytics(UTC)
+        for (trip in trips) analytics.add(trip, DRIVER)
+        return analytics
+    }
+
+    private fun trips(prefix: String, count: Int) = (0 until count).map { i ->
+        val behavior = Behavior()
+        behavior.type = Behavior.SPEED_LIMIT
+        behavior.startDate = Date(TimeUnit.HOURS.toMillis(HOUR.toLong()))
+        Trip("$prefix$i", VEHICLE, distance = DISTANCE, behaviors = listOf(behavior))
+    }
+
+    companion object {
+        private const val PARTS = 8
+        private const val TRIPS = 100
+        private const val DISTANCE = 12.5
+        private const val HOUR = 7
+        private const val TIMEOUT = 10L
+        private const val DRIVER = "driver"
+        private const val VEHICLE = "vehicle"
+        private val UTC = TimeZone.getTimeZone("UTC")
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.xee.sdk.fleet
+
+import com.xee.sdk.fleet.model.Location
+import com.xee.sdk.fleet.model.Status
+import io.reactivex.schedulers.TestScheduler
+import io.reactivex.subjects.PublishSubject
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import java.util.*
+import java.util.concurrent.TimeUnit
+
+class GeofenceEngineTest {
+
+    private val scheduler = TestScheduler()
+    private val engine = GeofenceEngine(DWELL_TIME, GeofenceEngine.CELL_SIZE, DWELL_CHECK_INTERVAL, scheduler)
+    private val statuses = PublishSubject.create<Status>()
+    private val observer = engine.observeStatuses(statuses).test()
+
+    @Test
+    fun dwell_emittedByPeriodicCheck() {
+        engine.add(GEOFENCE)
+        statuses.onNext(status(INSIDE_LATITUDE, START))
+        observer.assertValues(event(GeofenceEvent.Type.ENTER, START))
+
+        // The parked vehicle doesn't send new statuses, the dwell comes from the check
+        scheduler.advanceTimeBy(DWELL_TIME - DWELL_CHECK_INTERVAL, TimeUnit.MILLISECONDS)
+        observer.assertValueCount(1)
+        scheduler.advanceTimeBy(DWELL_CHECK_INTERVAL, TimeUnit.MILLISECONDS)
+        observer.assertValues(event(GeofenceEvent.Type.ENTER, START), event(GeofenceEvent.Type.DWELL, START + DWELL_TIME))
+
+        // A dwell is emitted once per stay
+        scheduler.advanceTimeBy(DWELL_TIME, TimeUnit.MILLISECONDS)
+        observer.assertValueCount(2)
+    }
+
+    @Test
+    fun dwell_emittedByNewStatus() {
+        engine.add(GEOFENCE)
+        statuses.onNext(status(INSIDE_LATITUDE, START))
+        statuses.onNext(status(INSIDE_LATITUDE, START + DWELL_TIME))
+        observer.assertValues(event(GeofenceEvent.Type.ENTER, START), event(GeofenceEvent.Type.DWELL, START + DWELL_TIME))
+    }
+
+    @Test
+    fun add_whileInside_entersNow() {
+        statuses.onNext(status(INSIDE_LATITUDE, START))
+        observer.assertNoValues()
+
+        scheduler.advanceTimeBy(ADD_DELAY, TimeUnit.MILLISECONDS)
+        val entered = engine.add(GEOFENCE)
+        assertEquals(listOf(event(GeofenceEvent.Type.ENTER, START + ADD_DELAY)), entered)
+        observer.assertValues(event(GeofenceEvent.Type.ENTER, START + ADD_DELAY))
+        assertEquals(setOf(GEOFENCE.id), engine.geofencesOf(VEHICLE))
+
+        // The stay starts when the geofence is added
+        scheduler.advanceTimeBy(DWELL_TIME - DWELL_CHECK_INTERVAL, TimeUnit.MILLISECONDS)
+        observer.assertValueCount(1)
+        scheduler.advanceTimeBy(DWELL_CHECK_INTERVAL, TimeUnit.MILLISECONDS)
+        observer.assertValueAt(1, event(GeofenceEvent.Type.DWELL, START + ADD_DELAY + DWELL_TIME))
+    }
+
+    @Test
+    fun add_replacedGeofence_keepsTheStay() {
+        engine.add(GEOFENCE)
+        statuses.onNext(status(INSIDE_LATITUDE, START))
+        assertEquals(emptyList<GeofenceEvent>(), engine.add(Geofence.Circle(GEOFENCE.id, LATITUDE, LONGITUDE, 2 * RADIUS)))
+        observer.assertValueCount(1)
+    }
+
+    @Test
+    fun add_eventsNotKeptForLaterObservers() {
+        statuses.onNext(status(INSIDE_LATITUDE, START))
+        observer.dispose()
+        assertEquals(1, engine.add(GEOFENCE).size)
+
+        engine.observeStatuses(statuses).test().assertNoValues()
+    }
+
+    @Test
+    fun exit_endsTheStay() {
+        engine.add(GEOFENCE)
+        statuses.onNext(status(INSIDE_LATITUDE, START))
+        statuses.onNext(status(OUTSIDE_LATITUDE, START + EXIT_DELAY))
+        observer.assertValues(event(GeofenceEvent.Type.ENTER, START), event(GeofenceEvent.Type.EXIT, START + EXIT_DELAY))
+        assertEquals(emptySet<String>(), engine.geofencesOf(VEHICLE))
+
+        scheduler.advanceTimeBy(2 * DWELL_TIME, TimeUnit.MILLISECONDS)
+        observer.assertValueCount(2)
+    }
+
+    @Test
+    fun exit_thenEnterAgain_startsANewStay() {
+        engine.add(GEOFENCE)
+        statuses.onNext(status(INSIDE_LATITUDE, START))
+        statuses.onNext(status(OUTSIDE_LATITUDE, START + EXIT_DELAY))
+        statuses.onNext(status(INSIDE_LATITUDE, START + 2 * EXIT_DELAY))
+        statuses.onNext(status(INSIDE_LATITUDE, START + DWELL_TIME))
+        observer.assertValues(event(GeofenceEvent.Type.ENTER, START), event(GeofenceEvent.Type.EXIT, START + EXIT_DELAY),
+                event(GeofenceEvent.Type.ENTER, START + 2 * EXIT_DELAY))
+    }
+
+    @Test
+    fun observe_completesWithTheStatuses() {
+        statuses.onComplete()
+        observer.assertComplete()
+        engine.add(GEOFENCE)
+        scheduler.advanceTimeBy(DWELL_TIME, TimeUnit.MILLISECONDS)
+        observer.assertNoValues()
+    }
+
+    private fun status(latitude: Double, date: Long) = Status(VEHICLE, Location(latitude, LONGITUDE), updatedAt = Date(date))
+
+    private fun event(type: GeofenceEvent.Type, date: Long) = GeofenceEvent(type, GEOFENCE.id, VEHICLE, Date(date))
+
+    companion object {
+        private const val DWELL_TIME = 60 * 1000L
+        private const val DWELL_CHECK_INTERVAL = 10 * 1000L
+        // On a dwell check, so that the dwell of the added geofence is reached on a check too
+        private const val ADD_DELAY = DWELL_CHECK_INTERVAL
+        private const val EXIT_DELAY = 1000L
+        private const val START = 1000000L
+        private const val VEHICLE = "vehicle"
+        private const val LATITUDE = 48.8566
+        private const val LONGITUDE = 2.3522
+        private const val RADIUS = 500.0
+        private const val INSIDE_LATITUDE = LATITUDE + 0.001
+        private const val OUTSIDE_LATITUDE = LATITUDE + 0.01
+        private val GEOFENCE = Geofence.Circle("geofence", LATITUDE, LONGITUDE, RADIUS)
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.xee.sdk.fleet
+
+import com.xee.sdk.fleet.model.Loan
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Test
+import java.util.*
+
+class LoanIndexTest {
+
+    private val index = LoanIndex()
+
+    @Test
+    fun loanAt_startInclusiveEndExclusive() {
+        index.put(loan("loan", 100, 200), VEHICLE, DRIVER)
+        assertNull(index.vehicleLoanAt(VEHICLE, Date(99)))
+        assertEquals("loan", index.vehicleLoanAt(VEHICLE, Date(100))?.id)
+        assertEquals("loan", index.vehicleLoanAt(VEHICLE, Date(199))?.id)
+        assertNull(index.vehicleLoanAt(VEHICLE, Date(200)))
+        assertEquals(DRIVER, index.driverIdAt(VEHICLE, Date(150)))
+        assertEquals("loan", index.driverLoanAt(DRIVER, Date(150))?.id)
+        assertNull(index.vehicleLoanAt(OTHER_VEHICLE, Date(150)))
+    }
+
+    @Test
+    fun loanAt_consecutiveLoans() {
+        index.put(loan("first", 100, 200), VEHICLE, DRIVER)
+        index.put(loan("second", 200, 300), VEHICLE, OTHER_DRIVER)
+        assertEquals("first", index.vehicleLoanAt(VEHICLE, Date(199))?.id)
+        assertEquals("second", index.vehicleLoanAt(VEHICLE, Date(200))?.id)
+        assertEquals(OTHER_DRIVER, index.driverIdAt(VEHICLE, Date(200)))
+    }
+
+    @Test
+    fun loanAt_latestStartedWins() {
+        index.put(loan("long", 0, 1000), VEHICLE, DRIVER)
+        index.put(loan("short", 400, 500), VEHICLE, OTHER_DRIVER)
+        assertEquals("long", index.vehicleLoanAt(VEHICLE, Date(399))?.id)
+        assertEquals("short", index.vehicleLoanAt(VEHICLE, Date(450))?.id)
+        // The long loan is still found behind the ended short one
+        assertEquals("long", index.vehicleLoanAt(VEHICLE, Date(500))?.id)
+        assertNull(index.vehicleLoanAt(VEHICLE, Date(1000)))
+    }
+
+    @Test
+    fun loanAt_openLoan() {
+        index.put(loan("ended", 0, 100), VEHICLE, DRIVER)
+        index.put(loan("open", 200, null), VEHICLE, DRIVER)
+        assertNull(index.vehicleLoanAt(VEHICLE, Date(150)))
+        assertEquals("open", index.vehicleLoanAt(VEHICLE, Date(200))?.id)
+        assertEquals("open", index.vehicleLoanAt(VEHICLE, Date(Long.MAX_VALUE - 1))?.id)
+    }
+
+    @Test
+    fun loanAt_outOfOrderLoans() {
+        for (i in 9 downTo 0) index.put(loan("loan$i", i * 100L, i * 100L + 50), VEHICLE, DRIVER)
+        for (i in 0..9) {
+            assertEquals("loan$i", index.vehicleLoanAt(VEHICLE, Date(i * 100L + 49))?.id)
+            assertNull(index.vehicleLoanAt(VEHICLE, Date(i * 100L + 50)))
+        }
+    }
+
+    @Test
+    fun put_ignoresLoansWithoutStart() {
+        index.put(Loan("loan"), VEHICLE, DRIVER)
+        assertEquals(emptyList<Loan>(), index.vehicleLoans(VEHICLE, Date(0), Date(Long.MAX_VALUE)))
+    }
+
+    @Test
+    fun put_replacesLoan() {
+        index.put(loan("loan", 100, 200), VEHICLE, DRIVER)
+        index.put(loan("loan", 300, 400), VEHICLE, DRIVER)
+        assertNull(index.vehicleLoanAt(VEHICLE, Date(150)))
+        assertEquals("loan", index.vehicleLoanAt(VEHICLE, Date(350))?.id)
+        assertEquals(1, index.vehicleLoans(VEHICLE, Date(0), Date(1000)).size)
+    }
+
+    @Test
+    fun loans_overlappingPeriod() {
+        index.put(loan("before", 0, 100), VEHICLE, DRIVER)
+        index.put(loan("across", 50, 150), VEHICLE, DRIVER)
+        index.put(loan("inside", 120, 130), VEHICLE, DRIVER)
+        index.put(loan("open", 180, null), VEHICLE, DRIVER)
+        index.put(loan("after", 200, 300), VEHICLE, DRIVER)
+
+        // From inclusive, to exclusive
+        assertEquals(listOf("across", "inside", "open"), ids(index.vehicleLoans(VEHICLE, Date(100), Date(200))))
+        assertEquals(listOf("before", "across"), ids(index.vehicleLoans(VEHICLE, Date(0), Date(100))))
+        assertEquals(listOf("open", "after"), ids(index.vehicleLoans(VEHICLE, Date(250), Date(260))))
+        assertEquals(listOf("open"), ids(index.vehicleLoans(VEHICLE, Date(1000), Date(2000))))
+        assertEquals(listOf("before", "across", "inside", "open", "after"), ids(index.driverLoans(DRIVER, Date(0), Date(1000))))
+        assertEquals(emptyList<String>(), ids(index.driverLoans(OTHER_DRIVER, Date(0), Date(1000))))
+    }
+
+    @Test
+    fun end_endsLoan() {
+        index.put(loan("loan", 100, null), VEHICLE, DRIVER)
+        index.end("loan", Date(200))
+        assertEquals("loan", index.vehicleLoanAt(VEHICLE, Date(199))?.id)
+        assertNull(index.vehicleLoanAt(VEHICLE, Date(200)))
+        assertEquals(Date(200), index.vehicleLoanAt(VEHICLE, Date(150))?.endedAt)
+        assertEquals(DRIVER, index.driverIdAt(VEHICLE, Date(150)))
+    }
+
+    @Test
+    fun end_doesNotModifyLoan() {
+        val loan = loan("loan", 100, null)
+        index.put(loan, VEHICLE, DRIVER)
+        index.end("loan", Date(200))
+        assertNull(loan.endedAt)
+    }
+
+    @Test
+    fun clear() {
+        index.put(loan("loan", 100, 200), VEHICLE, DRIVER)
+        index.clear()
+        assertNull(index.vehicleLoanAt(VEHICLE, Date(150)))
+        assertNull(index.driverLoanAt(DRIVER, Date(150)))
+    }
+
+    private fun loan(id: String, start: Long, end: Long?) = Loan(id, Date(start), end?.let { Date(it) })
+
+    private fun ids(loans: List<Loan>) = loans.map { it.id }
+
+    companion object {
+        private const val VEHICLE = "vehicle"
+        private const val OTHER_VEHICLE = "otherVehicle"
+        private const val DRIVER = "driver"
+        private const val OTHER_DRIVER = "otherDriver"
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.xee.sdk.fleet
+
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+class SpatialIndexTest {
+
+    private val index = SpatialIndex<String, String>()
+
+    @Test
+    fun nearest_emptyIndex() {
+        assertEquals(emptyList<String>(), index.nearest(PARIS_LATITUDE, PARIS_LONGITUDE, 3))
+    }
+
+    @Test
+    fun nearest_noCount() {
+        index.put("paris", PARIS_LATITUDE, PARIS_LONGITUDE, "paris")
+        assertEquals(emptyList<String>(), index.nearest(PARIS_LATITUDE, PARIS_LONGITUDE, 0))
+    }
+
+    @Test
+    fun nearest_singleFarValue() {
+        index.put("sydney", -33.86, 151.21, "sydney")
+        assertEquals(listOf("sydney"), index.nearest(PARIS_LATITUDE, PARIS_LONGITUDE, 3))
+    }
+
+    @Test
+    fun nearest_valuesBeyondRingLimit() {
+        // More values are asked than the rings visited before the scan can hold, the far ones come last
+        for (i in 0 until 100) index.put("paris$i", PARIS_LATITUDE + i * 0.0001, PARIS_LONGITUDE, "paris$i")
+        index.put("lyon", 45.76, 4.84, "lyon")
+        index.put("sydney", -33.86, 151.21, "sydney")
+
+        val nearest = index.nearest(PARIS_LATITUDE, PARIS_LONGITUDE, 200)
+        assertEquals(102, nearest.size)
+        assertEquals((0 until 100).map { "paris$it" } + listOf("lyon", "sydney"), nearest)
+    }
+
+    @Test
+    fun nearest_nearerValueInNextRing() {
+        // The value of the center cell is farther than the one just across the edge of the next cell
+        addFarValues()
+        index.put("sameCell", 48.8599, 2.3599, "sameCell")
+        index.put("nextCell", 48.8499, 2.3501, "nextCell")
+        assertEquals(listOf("nextCell", "sameCell"), index.nearest(48.8501, 2.3501, 2))
+        assertEquals(listOf("nextCell"), index.nearest(48.8501, 2.3501, 1))
+    }
+
+    @Test
+    fun nearest_acrossAntimeridian() {
+        addFarValues()
+        index.put("east", 0.0, 179.999, "east")
+        index.put("west", 0.0, -179.9995, "west")
+        assertEquals(listOf("west", "east"), index.nearest(0.0, -179.9999, 2))
+    }
+
+    @Test
+    fun nearest_followsMovedAndRemovedValues() {
+        addFarValues()
+        index.put("vehicle", PARIS_LATITUDE, PARIS_LONGITUDE, "vehicle")
+        index.put("vehicle", 45.76, 4.84, "vehicle")
+        index.put("other", PARIS_LATITUDE + 0.1, PARIS_LONGITUDE, "other")
+        assertEquals(listOf("other"), index.nearest(PARIS_LATITUDE, PARIS_LONGITUDE, 1))
+        index.remove("other")
+        assertEquals(listOf("vehicle"), index.nearest(PARIS_LATITUDE, PARIS_LONGITUDE, 1))
+    }
+
+    /**
+     * Values far from the queries, so that the rings are visited instead of scanning the values
+     */
+    private fun addFarValues() {
+        for (i in 0 until 50) index.put("far$i", -60.0 + i * 0.1, -120.0, "far$i")
+    }
+
+    companion object {
+        private const val PARIS_LATITUDE = 48.8566
+        private const val PARIS_LONGITUDE = 2.3522
+    }
+}
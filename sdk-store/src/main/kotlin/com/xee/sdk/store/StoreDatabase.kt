@@ -0,0 +1,72 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.xee.sdk.store
+
+import android.content.Context
+import android.database.sqlite.SQLiteDatabase
+import android.database.sqlite.SQLiteOpenHelper
+
+/**
+ * SQLite database of the [XeeStore]. The trips are stored as JSON next to the columns used to query them,
+ * the locations and the signals are stored in columns as they are read by thousands
+ * @author Julien Cholin
+ * @since 4.2.0
+ */
+internal class StoreDatabase(context: Context, name: String?) : SQLiteOpenHelper(context, name, null, VERSION) {
+
+    override fun onCreate(db: SQLiteDatabase) {
+        db.execSQL("CREATE TABLE $TRIPS ($ID TEXT PRIMARY KEY, $VEHICLE_ID TEXT NOT NULL, $START_DATE INTEGER NOT NULL, $IN_PROGRESS INTEGER NOT NULL, $JSON TEXT NOT NULL)")
+        db.execSQL("CREATE INDEX ${TRIPS}_$VEHICLE_ID ON $TRIPS ($VEHICLE_ID, $START_DATE)")
+        db.execSQL("CREATE TABLE $LOCATIONS ($TRIP_ID TEXT NOT NULL, $DATE INTEGER NOT NULL, $LATITUDE REAL, $LONGITUDE REAL, $ALTITUDE REAL, $HEADING REAL, "
+                + "$STREET TEXT, $CITY TEXT, $COUNTRY TEXT, PRIMARY KEY ($TRIP_ID, $DATE))")
+        db.execSQL("CREATE TABLE $SIGNALS ($TRIP_ID TEXT NOT NULL, $NAME TEXT NOT NULL, $DATE INTEGER NOT NULL, $VALUE REAL, "
+                + "PRIMARY KEY ($TRIP_ID, $DATE, $NAME))")
+    }
+
+    override fun onUpgrade(db: SQLiteDatabase, oldVersion: Int, newVersion: Int) {
+        // The store is a cache of the API, so it is rebuilt instead of migrated
+        db.execSQL("DROP TABLE IF EXISTS $TRIPS")
+        db.execSQL("DROP TABLE IF EXISTS $LOCATIONS")
+        db.execSQL("DROP TABLE IF EXISTS $SIGNALS")
+        onCreate(db)
+    }
+
+    companion object {
+        private const val VERSION = 2
+
+        const val TRIPS = "trips"
+        const val LOCATIONS = "locations"
+        const val SIGNALS = "signals"
+
+        const val ID = "id"
+        const val VEHICLE_ID = "vehicle_id"
+        const val TRIP_ID = "trip_id"
+        const val START_DATE = "start_date"
+        const val IN_PROGRESS = "in_progress"
+        const val JSON = "json"
+        const val DATE = "date"
+        const val LATITUDE = "latitude"
+        const val LONGITUDE = "longitude"
+        const val ALTITUDE = "altitude"
+        const val HEADING = "heading"
+        const val STREET = "street"
+        const val CITY = "city"
+        const val COUNTRY = "country"
+        const val NAME = "name"
+        const val VALUE = "value"
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.xee.sdk.store
+
+import com.xee.sdk.api.XeeApi
+import com.xee.sdk.api.model.Location
+import com.xee.sdk.api.model.Signal
+import com.xee.sdk.api.model.Trip
+import com.xee.sdk.core.common.DateDeserializer
+import io.reactivex.Observable
+import java.util.*
+
+/**
+ * The calls of the syncs of the [XeeStore], each one returns what has been recorded since a date, inclusive
+ * @author Julien Cholin
+ * @since 4.2.0
+ */
+internal interface StoreSource {
+    fun getVehicleTrips(vehicleId: String, from: Date?): Observable<List<Trip>>
+    fun getTripLocations(tripId: String, from: Date?): Observable<List<Location>>
+    fun getTripSignals(tripId: String, from: Date?): Observable<List<Signal>>
+}
+
+/**
+ * [StoreSource] calling the API
+ * @param xeeApi the [XeeApi]
+ * @author Julien Cholin
+ * @since 4.2.0
+ */
+internal class ApiStoreSource(private val xeeApi: XeeApi) : StoreSource {
+
+    override fun getVehicleTrips(vehicleId: String, from: Date?): Observable<List<Trip>> = xeeApi.getVehicleTrips(vehicleId, from)
+
+    override fun getTripLocations(tripId: String, from: Date?): Observable<List<Location>> = xeeApi.getTripLocations(tripId, sinceParameters(from))
+
+    override fun getTripSignals(tripId: String, from: Date?): Observable<List<Signal>> = xeeApi.getTripSignals(tripId, sinceParameters(from))
+
+    /**
+     * The search parameters starting at the given date, formatted in UTC as the stored dates come from the API
+     */
+    private fun sinceParameters(from: Date?): Map<String, Any> {
+        val optionalParameters = mutableMapOf<String, Any>()
+        if (from != null) optionalParameters[XeeApi.Params.FROM] = DateDeserializer.format(from)
+        return optionalParameters
+    }
+}
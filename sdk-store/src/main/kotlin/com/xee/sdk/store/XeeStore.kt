@@ -0,0 +1,277 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.xee.sdk.store
+
+import android.content.Context
+import android.database.Cursor
+import android.database.sqlite.SQLiteStatement
+import com.google.gson.Gson
+import com.google.gson.GsonBuilder
+import com.xee.sdk.api.XeeApi
+import com.xee.sdk.api.model.Location
+import com.xee.sdk.api.model.Signal
+import com.xee.sdk.api.model.Trip
+import com.xee.sdk.api.model.adapter.registerModelTypeAdapters
+import com.xee.sdk.core.common.DateDeserializer
+import io.reactivex.Completable
+import io.reactivex.Observable
+import io.reactivex.schedulers.Schedulers
+import io.reactivex.subjects.PublishSubject
+import java.util.*
+
+/**
+ * XeeStore keeps the trips, their locations and their signals on the device, so they can be read without network.
+ * The reads are served from the database and emit again each time a sync stores new data,
+ * the syncs only request what has been recorded since the last data stored
+ * @param context the [Context] used to open the database
+ * @param source the [StoreSource] used to sync the data
+ * @param name the name of the database, null for an in-memory database
+ * @author Julien Cholin
+ * @since 4.2.0
+ */
+class XeeStore internal constructor(context: Context, private val source: StoreSource, name: String?) {
+
+    /**
+     * @param context the [Context] used to open the database
+     * @param xeeApi the [XeeApi] used to sync the data
+     * @param name the name of the database, null for an in-memory database
+     */
+    @JvmOverloads
+    constructor(context: Context, xeeApi: XeeApi, name: String? = DATABASE_NAME) : this(context, ApiStoreSource(xeeApi), name)
+
+    private val database = StoreDatabase(context, name)
+    private val changes = PublishSubject.create<String>().toSerialized()
+    private val gson: Gson = GsonBuilder()
+            .registerTypeAdapter(Date::class.java, DateDeserializer())
+            .registerModelTypeAdapters()
+            .create()
+
+    companion object {
+        const val DATABASE_NAME = "xee-store.db"
+
+        private const val TRIPS_KEY = "trips:"
+        private const val LOCATIONS_KEY = "locations:"
+        private const val SIGNALS_KEY = "signals:"
+    }
+
+    //region [TRIPS]
+    /**
+     * Returns the stored trips of a vehicle, the most recent first. Emits again when new trips are synced
+     * @param vehicleId the uuid of the vehicle
+     */
+    fun getVehicleTrips(vehicleId: String): Observable<List<Trip>> = observe(TRIPS_KEY + vehicleId) {
+        val trips = ArrayList<Trip>()
+        database.readableDatabase.rawQuery("SELECT ${StoreDatabase.JSON} FROM ${StoreDatabase.TRIPS} WHERE ${StoreDatabase.VEHICLE_ID} = ? " +
+                "ORDER BY ${StoreDatabase.START_DATE} DESC", arrayOf(vehicleId)).use { cursor ->
+            while (cursor.moveToNext()) trips.add(gson.fromJson(cursor.getString(0), Trip::class.java))
+        }
+        trips
+    }
+
+    /**
+     * Fetch the trips of a vehicle started since the last trip stored. The trips still in progress when they were stored,
+     * without end location, are fetched again until they are stored ended, so the sync starts at the oldest of them
+     * @param vehicleId the uuid of the vehicle
+     */
+    fun syncVehicleTrips(vehicleId: String): Completable = Observable
+            .defer { source.getVehicleTrips(vehicleId, tripsFrom(vehicleId)) }
+            .doOnNext { trips -> storeTrips(vehicleId, trips) }
+            .ignoreElements()
+            .subscribeOn(Schedulers.io())
+
+    private fun storeTrips(vehicleId: String, trips: List<Trip>) {
+        if (trips.isEmpty()) return
+        write(TRIPS_KEY + vehicleId, "INSERT OR REPLACE INTO ${StoreDatabase.TRIPS} VALUES (?, ?, ?, ?, ?)") { statement ->
+            for (trip in trips) {
+                statement.bindString(1, trip.id)
+                statement.bindString(2, vehicleId)
+                statement.bindLong(3, startDateOf(trip))
+                statement.bindLong(4, if (trip.endLocation == null) 1 else 0)
+                statement.bindString(5, gson.toJson(trip))
+                statement.executeInsert()
+            }
+        }
+    }
+
+    private fun startDateOf(trip: Trip): Long = (trip.startLocation?.date ?: trip.createdAt)?.time ?: 0
+
+    /**
+     * @return the start date of the oldest trip stored in progress, else of the most recent trip stored, null if nothing is stored yet
+     */
+    private fun tripsFrom(vehicleId: String): Date? =
+            database.readableDatabase.rawQuery("SELECT COALESCE(MIN(CASE WHEN ${StoreDatabase.IN_PROGRESS} THEN ${StoreDatabase.START_DATE} END), " +
+                    "MAX(${StoreDatabase.START_DATE})) FROM ${StoreDatabase.TRIPS} WHERE ${StoreDatabase.VEHICLE_ID} = ?", arrayOf(vehicleId)).use { cursor ->
+                if (cursor.moveToFirst() && !cursor.isNull(0)) Date(cursor.getLong(0)) else null
+            }
+    //endregion
+
+    //region [LOCATIONS]
+    /**
+     * Returns the stored locations of a trip, sorted by date. Emits again when new locations are synced
+     * @param tripId the uuid of the trip
+     */
+    fun getTripLocations(tripId: String): Observable<List<Location>> = observe(LOCATIONS_KEY + tripId) {
+        val locations = ArrayList<Location>()
+        database.readableDatabase.rawQuery("SELECT ${StoreDatabase.LATITUDE}, ${StoreDatabase.LONGITUDE}, ${StoreDatabase.ALTITUDE}, " +
+                "${StoreDatabase.HEADING}, ${StoreDatabase.STREET}, ${StoreDatabase.CITY}, ${StoreDatabase.COUNTRY}, ${StoreDatabase.DATE} " +
+                "FROM ${StoreDatabase.LOCATIONS} WHERE ${StoreDatabase.TRIP_ID} = ? ORDER BY ${StoreDatabase.DATE}", arrayOf(tripId)).use { cursor ->
+            while (cursor.moveToNext()) {
+                locations.add(Location(cursor.getDouble(0), cursor.getDouble(1), cursor.getDouble(2), cursor.getDouble(3),
+                        cursor.getStringOrNull(4), cursor.getStringOrNull(5), cursor.getStringOrNull(6), Date(cursor.getLong(7))))
+            }
+        }
+        locations
+    }
+
+    /**
+     * Fetch the locations of a trip recorded since the last location stored.
+     * The locations without date can't be synced incrementally, so they are ignored
+     * @param tripId the uuid of the trip
+     */
+    fun syncTripLocations(tripId: String): Completable = Observable
+            .defer { source.getTripLocations(tripId, lastDate(StoreDatabase.LOCATIONS, StoreDatabase.DATE, StoreDatabase.TRIP_ID, tripId)) }
+            .doOnNext { locations -> storeLocations(tripId, locations) }
+            .ignoreElements()
+            .subscribeOn(Schedulers.io())
+
+    private fun storeLocations(tripId: String, locations: List<Location>) {
+        if (locations.isEmpty()) return
+        write(LOCATIONS_KEY + tripId, "INSERT OR REPLACE INTO ${StoreDatabase.LOCATIONS} VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)") { statement ->
+            for (location in locations) {
+                val date = location.date ?: continue
+                statement.bindString(1, tripId)
+                statement.bindLong(2, date.time)
+                statement.bindDouble(3, location.latitude)
+                statement.bindDouble(4, location.longitude)
+                statement.bindDouble(5, location.altitude)
+                statement.bindDouble(6, location.heading)
+                statement.bindStringOrNull(7, location.street)
+                statement.bindStringOrNull(8, location.city)
+                statement.bindStringOrNull(9, location.country)
+                statement.executeInsert()
+            }
+        }
+    }
+    //endregion
+
+    //region [SIGNALS]
+    /**
+     * Returns the stored signals of a trip, sorted by date. Emits again when new signals are synced
+     * @param tripId the uuid of the trip
+     */
+    fun getTripSignals(tripId: String): Observable<List<Signal>> = observe(SIGNALS_KEY + tripId) {
+        val signals = ArrayList<Signal>()
+        database.readableDatabase.rawQuery("SELECT ${StoreDatabase.NAME}, ${StoreDatabase.VALUE}, ${StoreDatabase.DATE} FROM ${StoreDatabase.SIGNALS} " +
+                "WHERE ${StoreDatabase.TRIP_ID} = ? ORDER BY ${StoreDatabase.DATE}", arrayOf(tripId)).use { cursor ->
+            while (cursor.moveToNext()) signals.add(Signal(cursor.getString(0), cursor.getDouble(1), Date(cursor.getLong(2))))
+        }
+        signals
+    }
+
+    /**
+     * Fetch the signals of a trip recorded since the last signal stored.
+     * The signals without date can't be synced incrementally, so they are ignored
+     * @param tripId the uuid of the trip
+     */
+    fun syncTripSignals(tripId: String): Completable = Observable
+            .defer { source.getTripSignals(tripId, lastDate(StoreDatabase.SIGNALS, StoreDatabase.DATE, StoreDatabase.TRIP_ID, tripId)) }
+            .doOnNext { signals -> storeSignals(tripId, signals) }
+            .ignoreElements()
+            .subscribeOn(Schedulers.io())
+
+    private fun storeSignals(tripId: String, signals: List<Signal>) {
+        if (signals.isEmpty()) return
+        write(SIGNALS_KEY + tripId, "INSERT OR REPLACE INTO ${StoreDatabase.SIGNALS} VALUES (?, ?, ?, ?)") { statement ->
+            for (signal in signals) {
+                val name = signal.name ?: continue
+                val date = signal.date ?: continue
+                statement.bindString(1, tripId)
+                statement.bindString(2, name)
+                statement.bindLong(3, date.time)
+                statement.bindDouble(4, signal.value)
+                statement.executeInsert()
+            }
+        }
+    }
+    //endregion
+
+    /**
+     * Delete all the stored data, for instance when the user is disconnected
+     */
+    fun clear(): Completable = Completable.fromAction {
+        val db = database.writableDatabase
+        db.beginTransaction()
+        try {
+            db.delete(StoreDatabase.TRIPS, null, null)
+            db.delete(StoreDatabase.LOCATIONS, null, null)
+            db.delete(StoreDatabase.SIGNALS, null, null)
+            db.setTransactionSuccessful()
+        } finally {
+            db.endTransaction()
+        }
+    }.subscribeOn(Schedulers.io())
+
+    /**
+     * Close the database, the store can't be used anymore
+     */
+    fun close() {
+        database.close()
+    }
+
+    /**
+     * Emits the result of the query, then again each time the data of the key changes
+     */
+    private fun <T> observe(key: String, query: () -> T): Observable<T> = changes
+            .filter { it == key }
+            .startWith(key)
+            .map { query() }
+            .subscribeOn(Schedulers.io())
+
+    /**
+     * Runs a statement for a batch of rows in one transaction, then notifies the observers of the key
+     */
+    private fun write(key: String, sql: String, bind: (SQLiteStatement) -> Unit) {
+        val db = database.writableDatabase
+        db.beginTransaction()
+        try {
+            val statement = db.compileStatement(sql)
+            try {
+                bind(statement)
+            } finally {
+                statement.close()
+            }
+            db.setTransactionSuccessful()
+        } finally {
+            db.endTransaction()
+        }
+        changes.onNext(key)
+    }
+
+    /**
+     * @return the most recent date stored for the owner, null if nothing is stored yet
+     */
+    private fun lastDate(table: String, dateColumn: String, ownerColumn: String, owner: String): Date? =
+            database.readableDatabase.rawQuery("SELECT MAX($dateColumn) FROM $table WHERE $ownerColumn = ?", arrayOf(owner)).use { cursor ->
+                if (cursor.moveToFirst() && !cursor.isNull(0)) Date(cursor.getLong(0)) else null
+            }
+
+    private fun Cursor.getStringOrNull(index: Int): String? = if (isNull(index)) null else getString(index)
+
+    private fun SQLiteStatement.bindStringOrNull(index: Int, value: String?) {
+        if (value == null) bindNull(index) else bindString(index, value)
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2017 Xee
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.xee.sdk.store
+
+import com.xee.sdk.api.model.Location
+import com.xee.sdk.api.model.Signal
+import com.xee.sdk.api.model.Trip
+import io.reactivex.Observable
+import io.reactivex.plugins.RxJavaPlugins
+import io.reactivex.schedulers.Schedulers
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.RuntimeEnvironment
+import org.robolectric.annotation.Config
+import java.util.*
+
+@RunWith(RobolectricTestRunner::class)
+@Config(manifest = Config.NONE)
+class XeeStoreTest {
+
+    private val source = FakeSource()
+    private lateinit var store: XeeStore
+
+    @Before
+    fun setUp() {
+        RxJavaPlugins.setIoSchedulerHandler { Schedulers.trampoline() }
+        store = XeeStore(RuntimeEnvironment.application, source, null)
+    }
+
+    @After
+    fun tearDown() {
+        store.close()
+        RxJavaPlugins.reset()
+    }
+
+    @Test
+    fun syncTripLocations_fromLastStoredDate() {
+        source.locations = listOf(location(1000), location(2000))
+        store.syncTripLocations(TRIP).blockingAwait()
+        source.locations = emptyList()
+        store.syncTripLocations(TRIP).blockingAwait()
+        store.syncTripLocations(OTHER_TRIP).blockingAwait()
+
+        assertEquals(listOf(null, Date(2000), null), source.froms)
+    }
+
+    @Test
+    fun syncTripLocations_upsertsBoundaryLocation() {
+        source.locations = listOf(location(1000), location(2000, "Paris"))
+        store.syncTripLocations(TRIP).blockingAwait()
+        // The boundary location is sent again as from is inclusive, with its latest values
+        source.locations = listOf(location(2000, "Lyon"), location(3000))
+        store.syncTripLocations(TRIP).blockingAwait()
+
+        val locations = store.getTripLocations(TRIP).blockingFirst()
+        assertEquals(listOf(1000L, 2000L, 3000L), locations.map { it.date?.time })
+        assertEquals("Lyon", locations[1].city)
+    }
+
+    @Test
+    fun syncTripSignals_skipsSignalsWithoutDateOrName() {
+        source.signals = listOf(Signal("speed", 10.0, Date(1000)), Signal("speed", 20.0), Signal(null, 30.0, Date(5000)))
+        store.syncTripSignals(TRIP).blockingAwait()
+        store.syncTripSignals(TRIP).blockingAwait()
+
+        assertEquals(listOf(Signal("speed", 10.0, Date(1000))), store.getTripSignals(TRIP).blockingFirst())
+        assertEquals(listOf(null, Date(1000)), source.froms)
+    }
+
+    @Test
+    fun getTripSignals_emitsAgainAfterSync() {
+        val observer = store.getTripSignals(TRIP).test()
+        val otherObserver = store.getTripSignals(OTHER_TRIP).test()
+        source.signals = listOf(Signal("speed", 10.0, Date(1000)))
+        store.syncTripSignals(TRIP).blockingAwait()
+
+        observer.assertValues(emptyList(), listOf(Signal("speed", 10.0, Date(1000))))
+        otherObserver.assertValues(emptyList())
+    }
+
+    @Test
+    fun syncVehicleTrips_fromLastStartedTrip() {
+        source.trips = listOf(trip("first", 1000, true), trip("second", 2000, true))
+        store.syncVehicleTrips(VEHICLE).blockingAwait()
+        store.syncVehicleTrips(VEHICLE).blockingAwait()
+
+        assertEquals(listOf(null, Date(2000)), source.froms)
+        assertEquals(listOf("second", "first"), store.getVehicleTrips(VEHICLE).blockingFirst().map { it.id })
+    }
+
+    @Test
+    fun syncVehicleTrips_fetchesTripsInProgressAgain() {
+        source.trips = listOf(trip("ended", 1000, true), trip("inProgress", 2000, false), trip("last", 3000, true))
+        store.syncVehicleTrips(VEHICLE).blockingAwait()
+        source.trips = listOf(trip("inProgress", 2000, true), trip("last", 3000, true))
+        store.syncVehicleTrips(VEHICLE).blockingAwait()
+        store.syncVehicleTrips(VEHICLE).blockingAwait()
+
+        assertEquals(listOf(null, Date(2000), Date(3000)), source.froms)
+        assertEquals(3, store.getVehicleTrips(VEHICLE).blockingFirst().size)
+    }
+
+    @Test
+    fun clear_forgetsTheCursors() {
+        source.locations = listOf(location(1000))
+        store.syncTripLocations(TRIP).blockingAwait()
+        store.clear().blockingAwait()
+        store.syncTripLocations(TRIP).blockingAwait()
+
+        assertNull(source.froms[1])
+    }
+
+    private fun location(date: Long, city: String? = null) = Location(1.0, 2.0, city = city, date = Date(date))
+
+    private fun trip(id: String, start: Long, ended: Boolean) =
+            Trip(id, startLocation = location(start), endLocation = if (ended) location(start + 500) else null)
+
+    /**
+     * Returns the configured items and records the from of each call
+     */
+    private class FakeSource : StoreSource {
+        var trips = emptyList<Trip>()
+        var locations = emptyList<Location>()
+        var signals = emptyList<Signal>()
+        val froms = ArrayList<Date?>()
+
+        override fun getVehicleTrips(vehicleId: String, from: Date?): Observable<List<Trip>> = record(from, trips)
+
+        override fun getTripLocations(tripId: String, from: Date?): Observable<List<Location>> = record(from, locations)
+
+        override fun getTripSignals(tripId: String, from: Date?): Observable<List<Signal>> = record(from, signals)
+
+        private fun <T> record(from: Date?, items: List<T>): Observable<List<T>> = Observable.fromCallable {
+            froms.add(from)
+            items
+        }
+    }
+
+    companion object {
+        private const val VEHICLE = "vehicle"
+        private const val TRIP = "trip"
+        private const val OTHER_TRIP = "otherTrip"
+    }
+}